@@ -0,0 +1,217 @@
+package io.github.foundationgames.deathrun.test;
+
+import com.mojang.authlib.GameProfile;
+import io.github.foundationgames.deathrun.game.map.DeathRunMap;
+import io.github.foundationgames.deathrun.game.state.DRGame;
+import io.github.foundationgames.deathrun.game.state.DRTeam;
+import io.github.foundationgames.deathrun.test.mixin.ServerPlayNetworkHandlerAccess;
+import io.netty.buffer.Unpooled;
+import net.minecraft.network.PacketByteBuf;
+import net.minecraft.network.packet.c2s.play.PlayerInteractBlockC2SPacket;
+import net.minecraft.network.packet.c2s.play.PlayerMoveC2SPacket;
+import net.minecraft.network.packet.c2s.play.TeleportConfirmC2SPacket;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.network.ServerPlayerEntity;
+import net.minecraft.text.LiteralText;
+import net.minecraft.util.Hand;
+import net.minecraft.util.hit.BlockHitResult;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.Direction;
+import net.minecraft.util.math.MathHelper;
+import net.minecraft.util.math.Vec3d;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * A fake player on a {@link FakeClientConnection}, which plays through the same packet handlers as a real client.
+ * Runners walk a straight line through the map's start, checkpoints and finish, deaths press random trap buttons.
+ * Packets are built from their wire format, since their client constructors are not present on a server.
+ */
+public class Bot {
+    private static final double REACH = 1;
+    private static final double SPREAD = 1.5;
+
+    public final ServerPlayerEntity player;
+    public final FakeClientConnection connection;
+    private final Random random;
+    private final double speed;
+    private final double offsetX;
+    private final double offsetZ;
+    private final int pressInterval;
+
+    private @Nullable List<Vec3d> path;
+    private int waypoint = 0;
+    private int nextPress;
+    private long presses = 0;
+    private long rejectedMoves = 0;
+    private long teleports = 0;
+    private boolean idle = false;
+
+    private Bot(ServerPlayerEntity player, FakeClientConnection connection, Random random, int pressInterval) {
+        this.player = player;
+        this.connection = connection;
+        this.random = random;
+        this.speed = 0.2 + random.nextDouble() * 0.1;
+        this.offsetX = (random.nextDouble() * 2 - 1) * SPREAD;
+        this.offsetZ = (random.nextDouble() * 2 - 1) * SPREAD;
+        this.pressInterval = pressInterval;
+        this.nextPress = random.nextInt(pressInterval) + 1;
+    }
+
+    /**
+     * Logs a new fake player into the server
+     *
+     * @param latency the round trip time the player reports, in milliseconds
+     * @param pressInterval average ticks between trap button presses, should the bot become a death
+     */
+    public static Bot connect(MinecraftServer server, String name, int latency, int pressInterval, long seed) {
+        var profile = new GameProfile(UUID.nameUUIDFromBytes(("DeathRunBot:" + name).getBytes(StandardCharsets.UTF_8)), name);
+        var connection = new FakeClientConnection();
+        var player = new ServerPlayerEntity(server, server.getOverworld(), profile);
+        server.getPlayerManager().onPlayerConnect(connection, player);
+        player.pingMilliseconds = latency;
+        return new Bot(player, connection, new Random(seed), pressInterval);
+    }
+
+    public void disconnect() {
+        player.networkHandler.onDisconnected(new LiteralText("Load test finished"));
+    }
+
+    public long getPresses() {
+        return presses;
+    }
+
+    public long getRejectedMoves() {
+        return rejectedMoves;
+    }
+
+    /**
+     * @return how many teleports from the server the bot confirmed
+     */
+    public long getTeleports() {
+        return teleports;
+    }
+
+    /**
+     * Makes the bot stand still and press nothing, while still confirming teleports
+     */
+    public void setIdle(boolean idle) {
+        this.idle = idle;
+    }
+
+    /**
+     * Plays one tick, must be called once per server tick after the worlds ticked
+     */
+    public void tick(@Nullable DRGame game) {
+        // Teleports from the game, such as respawning at a checkpoint
+        if (confirmTeleport()) path = null;
+
+        if (!idle && game != null && game.players.get(player) instanceof DRGame.Player gamePlayer && gamePlayer.isStarted()) {
+            if (gamePlayer.team == DRTeam.RUNNERS) {
+                if (!gamePlayer.isFinished()) run(game.map);
+            } else {
+                pressButtons(game.map);
+            }
+        }
+        // Done by the network handler's tick for a real client
+        player.playerTick();
+    }
+
+    private void run(DeathRunMap map) {
+        if (path == null) {
+            path = createPath(map);
+            waypoint = Math.min(findNearest(path, player.getPos()) + 1, path.size() - 1);
+        }
+        var target = path.get(waypoint);
+        double dx = target.x + offsetX - player.getX();
+        double dy = target.y - player.getY();
+        double dz = target.z + offsetZ - player.getZ();
+        double dist = Math.sqrt(dx * dx + dy * dy + dz * dz);
+        if (dist < REACH) {
+            if (waypoint < path.size() - 1) waypoint++;
+            return;
+        }
+        double step = Math.min(speed, dist) / dist;
+        float yaw = (float) (MathHelper.atan2(dz, dx) * 180 / Math.PI) - 90;
+        move(player.getX() + dx * step, player.getY() + dy * step, player.getZ() + dz * step, yaw);
+    }
+
+    private void pressButtons(DeathRunMap map) {
+        if (--nextPress > 0 || map.trapZones.isEmpty()) return;
+        nextPress = pressInterval / 2 + random.nextInt(pressInterval) + 1;
+
+        var buttons = new ArrayList<>(map.trapZones.keySet());
+        var pos = buttons.get(random.nextInt(buttons.size()));
+        // Deaths move between their buttons freely, only the press goes through the packet handler
+        setPosition(pos.getX() + 0.5, pos.getY(), pos.getZ() + 0.5, player.getYaw());
+        useBlock(pos);
+        presses++;
+    }
+
+    private boolean confirmTeleport() {
+        var handler = (ServerPlayNetworkHandlerAccess) player.networkHandler;
+        if (handler.deathrun$requestedTeleportPos() == null) return false;
+        var buf = new PacketByteBuf(Unpooled.buffer());
+        buf.writeVarInt(handler.deathrun$requestedTeleportId());
+        player.networkHandler.onTeleportConfirm(new TeleportConfirmC2SPacket(buf));
+        teleports++;
+        return true;
+    }
+
+    private void move(double x, double y, double z, float yaw) {
+        var buf = new PacketByteBuf(Unpooled.buffer());
+        buf.writeDouble(x);
+        buf.writeDouble(y);
+        buf.writeDouble(z);
+        buf.writeFloat(yaw);
+        buf.writeFloat(0);
+        buf.writeByte(1);
+        player.networkHandler.onPlayerMove(PlayerMoveC2SPacket.Full.read(buf));
+        if (confirmTeleport()) {
+            // Walked into a wall, bots go straight through whatever is in their way
+            rejectedMoves++;
+            setPosition(x, y, z, yaw);
+        }
+    }
+
+    private void useBlock(BlockPos pos) {
+        var buf = new PacketByteBuf(Unpooled.buffer());
+        buf.writeEnumConstant(Hand.MAIN_HAND);
+        buf.writeBlockHitResult(new BlockHitResult(Vec3d.ofCenter(pos), Direction.UP, pos, false));
+        player.networkHandler.onPlayerInteractBlock(new PlayerInteractBlockC2SPacket(buf));
+        confirmTeleport();
+    }
+
+    private void setPosition(double x, double y, double z, float yaw) {
+        player.updatePositionAndAngles(x, y, z, yaw, 0);
+        player.getServerWorld().getChunkManager().updatePosition(player);
+    }
+
+    /**
+     * @return the runner start, the checkpoints in the order of the nearest next one, then the finish
+     */
+    private static List<Vec3d> createPath(DeathRunMap map) {
+        var path = new ArrayList<Vec3d>();
+        path.add(map.runnerStart.centerBottom());
+        var remaining = new ArrayList<Vec3d>();
+        for (var checkpoint : map.checkpoints) remaining.add(checkpoint.bounds().centerBottom());
+        while (!remaining.isEmpty()) {
+            path.add(remaining.remove(findNearest(remaining, path.get(path.size() - 1))));
+        }
+        path.add(map.finish.centerBottom());
+        return path;
+    }
+
+    private static int findNearest(List<Vec3d> points, Vec3d pos) {
+        int nearest = 0;
+        for (int i = 1; i < points.size(); i++) {
+            if (points.get(i).squaredDistanceTo(pos) < points.get(nearest).squaredDistanceTo(pos)) nearest = i;
+        }
+        return nearest;
+    }
+}
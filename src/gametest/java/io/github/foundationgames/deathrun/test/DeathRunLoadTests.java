@@ -0,0 +1,220 @@
+package io.github.foundationgames.deathrun.test;
+
+import io.github.foundationgames.deathrun.DeathRun;
+import io.github.foundationgames.deathrun.game.map.ChunkPacketCache;
+import io.github.foundationgames.deathrun.game.map.MapStandby;
+import net.fabricmc.fabric.api.gametest.v1.FabricGameTest;
+import net.minecraft.test.GameTest;
+import net.minecraft.test.GameTestException;
+import net.minecraft.test.TestContext;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.Vec3d;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Headless load tests, each in its own batch so that no two run at the same time.
+ * Run with {@code ./gradlew runGametest}, reports are written to {@code build/gametest/deathrun/loadtest}.
+ */
+public class DeathRunLoadTests implements FabricGameTest {
+    public static final int MEASURE_TICKS = 600;
+    // Opening, the lobby and the start countdown take well under 1000 ticks
+    public static final int SCENARIO_TICKS = 1000 + MEASURE_TICKS;
+
+    public static final LoadScenario.Options GARDENS = new LoadScenario.Options("gardens_60", DeathRun.id("loadtest/gardens"), 60, 40, 100, MEASURE_TICKS);
+    public static final LoadScenario.Options RUNNERS = new LoadScenario.Options("runners", DeathRun.id("loadtest/gardens_runners"), 10, 40, 100, MEASURE_TICKS);
+
+    @GameTest(structureName = EMPTY_STRUCTURE, tickLimit = SCENARIO_TICKS, batchId = "load_gardens")
+    public void gardens(TestContext context) {
+        var scenario = LoadScenario.start(context.getWorld().getServer(), GARDENS);
+        context.addFinalTask(() -> {
+            var report = scenario.getReport();
+            if (report.runners() == 0) throw new GameTestException("No bot became a runner");
+        });
+    }
+
+    /**
+     * Runner store cost at 10, 100 and 500 runners, one game after another
+     */
+    @GameTest(structureName = EMPTY_STRUCTURE, tickLimit = 3 * SCENARIO_TICKS, batchId = "load_runner_scaling")
+    public void runnerScaling(TestContext context) {
+        var server = context.getWorld().getServer();
+        var scenarios = new ArrayList<LoadScenario>();
+        scenarios.add(LoadScenario.start(server, RUNNERS.withPlayers("runners_10", 10)));
+        scenarios.add(scenarios.get(0).then(RUNNERS.withPlayers("runners_100", 100)));
+        scenarios.add(scenarios.get(1).then(RUNNERS.withPlayers("runners_500", 500)));
+        context.addFinalTask(() -> {
+            var lines = new ArrayList<String>();
+            lines.add(String.format("%-8s %10s %10s %s", "runners", "avg mspt", "p95 mspt", "game phase"));
+            for (var scenario : scenarios) {
+                var report = scenario.getReport();
+                lines.add(String.format("%-8d %10.3f %10.3f %s", report.runners(), report.msptAverage(), report.msptPercentile(0.95), report.gameMetric("players")));
+            }
+            LoadScenario.write("runner_scaling", lines);
+        });
+    }
+
+    /**
+     * Tick time of gardens with and without arena simulation, with the same seed and bots
+     */
+    @GameTest(structureName = EMPTY_STRUCTURE, tickLimit = 2 * SCENARIO_TICKS, batchId = "load_arena_simulation")
+    public void arenaSimulation(TestContext context) {
+        var off = LoadScenario.start(context.getWorld().getServer(), GARDENS.withName("arena_off", DeathRun.id("loadtest/gardens")));
+        var on = off.then(GARDENS.withName("arena_on", DeathRun.id("loadtest/gardens_arena")));
+        context.addFinalTask(() -> {
+            var with = on.getReport();
+            var without = off.getReport();
+            LoadScenario.write("arena_savings", List.of(
+                    String.format("without arena simulation: avg %.3f mspt, p95 %.3f mspt", without.msptAverage(), without.msptPercentile(0.95)),
+                    String.format("with arena simulation:    avg %.3f mspt, p95 %.3f mspt", with.msptAverage(), with.msptPercentile(0.95)),
+                    String.format("saved: %.3f mspt (%.1f%%)", without.msptAverage() - with.msptAverage(), 100 * (1 - with.msptAverage() / without.msptAverage())),
+                    with.gameMetric("arena_chunk_ticks_skipped"),
+                    with.gameMetric("arena_block_ticks_deferred"),
+                    with.gameMetric("arena_block_entity_ticks_skipped")
+            ));
+        });
+    }
+
+    /**
+     * Bytes sent to 60 runners and tick time with every runner visible, against runners only seeing others within 16 blocks
+     */
+    @GameTest(structureName = EMPTY_STRUCTURE, tickLimit = 2 * SCENARIO_TICKS, batchId = "load_visibility")
+    public void visibility(TestContext context) {
+        var options = GARDENS.withCountBytes();
+        var all = LoadScenario.start(context.getWorld().getServer(), options.withName("visibility_all", DeathRun.id("loadtest/gardens_visibility_all")));
+        var radius = all.then(options.withName("visibility_radius", DeathRun.id("loadtest/gardens_visibility_radius")));
+        context.addFinalTask(() -> {
+            var with = radius.getReport();
+            var without = all.getReport();
+            double saved = without.bytesSentPerPlayerTick() - with.bytesSentPerPlayerTick();
+            var phase = with.gamePhase("visibility");
+            LoadScenario.write("visibility", List.of(
+                    String.format("runners: %d and %d", without.runners(), with.runners()),
+                    String.format("every runner visible: %.1f bytes per player per tick, avg %.3f mspt, p95 %.3f mspt", without.bytesSentPerPlayerTick(), without.msptAverage(), without.msptPercentile(0.95)),
+                    String.format("within 16 blocks:     %.1f bytes per player per tick, avg %.3f mspt, p95 %.3f mspt", with.bytesSentPerPlayerTick(), with.msptAverage(), with.msptPercentile(0.95)),
+                    String.format("saved: %.1f bytes per player per tick (%.1f%%)", saved, 100 * saved / without.bytesSentPerPlayerTick()),
+                    String.format("visibility updates: avg %.3f us per tick, max %.3f us", phase[0], phase[1])
+            ));
+            if (saved <= 0) throw new GameTestException("Hiding runners outside the radius sent no fewer bytes");
+        });
+    }
+
+    /**
+     * Join and game start cost of 40 players, first with no cached chunk packets, then for the next game of the map
+     */
+    @GameTest(structureName = EMPTY_STRUCTURE, tickLimit = 2 * SCENARIO_TICKS, batchId = "load_join")
+    public void join(TestContext context) {
+        ChunkPacketCache.clear();
+        // Only the startup is of interest, the game is measured briefly
+        var join = new LoadScenario.Options("join_cold", DeathRun.id("loadtest/gardens_join"), 40, 40, 0, 100);
+        var cold = LoadScenario.start(context.getWorld().getServer(), join);
+        var warm = cold.then(join.withName("join_warm", join.config()));
+        context.addFinalTask(() -> {
+            var lines = new ArrayList<String>();
+            for (var scenario : List.of(cold, warm)) {
+                var report = scenario.getReport();
+                lines.add(report.name() + ":");
+                report.startup().forEach(line -> lines.add("  " + line));
+            }
+            LoadScenario.write("join", lines);
+        });
+    }
+
+    /**
+     * Time between games of 40 players, opening the next game cold and then from the map the first game put on standby.
+     * Standby only compiles the map, the world is created and its chunks generated and lit on open and join either way.
+     */
+    @GameTest(structureName = EMPTY_STRUCTURE, tickLimit = 2 * SCENARIO_TICKS, batchId = "load_standby")
+    public void standby(TestContext context) {
+        int standbyOpens = MapStandby.getStandbyOpens();
+        // Measures long enough for the standby load the first game starts to finish
+        var options = new LoadScenario.Options("standby_cold", DeathRun.id("loadtest/gardens_standby"), 40, 40, 100, 100);
+        var cold = LoadScenario.start(context.getWorld().getServer(), options);
+        var warm = cold.then(options.withName("standby_warm", options.config()));
+        context.addFinalTask(() -> {
+            var lines = new ArrayList<String>();
+            for (var scenario : List.of(cold, warm)) {
+                var report = scenario.getReport();
+                lines.add(report.name() + ":");
+                report.startup().forEach(line -> lines.add("  " + line));
+            }
+            int opened = MapStandby.getStandbyOpens() - standbyOpens;
+            lines.add("maps compiled on standby: " + opened);
+            lines.add("world creation, chunk generation and lighting happen when each game opens, and are not covered by standby");
+            LoadScenario.write("standby", lines);
+            if (opened == 0) throw new GameTestException("The second game did not open from standby");
+        });
+    }
+
+    /**
+     * Cost of 1 Hz snapshots with 60 players, against the same game without them
+     */
+    @GameTest(structureName = EMPTY_STRUCTURE, tickLimit = 2 * SCENARIO_TICKS, batchId = "load_snapshots")
+    public void snapshots(TestContext context) {
+        var off = LoadScenario.start(context.getWorld().getServer(), GARDENS.withName("snapshots_off", DeathRun.id("loadtest/gardens_no_snapshots")));
+        var on = off.then(GARDENS.withName("snapshots_on", DeathRun.id("loadtest/gardens")));
+        context.addFinalTask(() -> {
+            var with = on.getReport();
+            var without = off.getReport();
+            var phase = with.gamePhase("snapshots");
+            if (Double.isNaN(phase[0])) throw new GameTestException("The game recorded no snapshot metrics");
+            LoadScenario.write("snapshots", List.of(
+                    String.format("players: %d", with.players()),
+                    // Only every 20th tick writes a snapshot, the others return immediately
+                    String.format("per snapshot: avg %.3f us, max %.3f us", phase[0] * 20, phase[1]),
+                    String.format("per tick: avg %.3f us", phase[0]),
+                    with.gameMetric("snapshot_bytes_written"),
+                    String.format("server mspt without snapshots: avg %.3f, p95 %.3f", without.msptAverage(), without.msptPercentile(0.95)),
+                    String.format("server mspt with snapshots:    avg %.3f, p95 %.3f", with.msptAverage(), with.msptPercentile(0.95))
+            ));
+        });
+    }
+
+    /**
+     * Server thread cost of logging an event, which should stay under a microsecond
+     */
+    @GameTest(structureName = EMPTY_STRUCTURE, tickLimit = 400, batchId = "bench_event_log")
+    public void eventLog(TestContext context) {
+        var benchmark = new EventLogBenchmark(context.getWorld().getTime());
+        context.addFinalTask(benchmark::tick);
+    }
+
+    /**
+     * Allocation per dispenser arrow, with a new arrow for every shot against arrows reused from the pool
+     */
+    @GameTest(structureName = EMPTY_STRUCTURE, tickLimit = 600, batchId = "bench_projectile_pool")
+    public void projectilePool(TestContext context) {
+        var benchmark = new ProjectilePoolBenchmark(context.getWorld(), Vec3d.ofCenter(context.getAbsolutePos(new BlockPos(0, 2, 0))));
+        context.addFinalTask(benchmark::tick);
+    }
+
+    /**
+     * Heap retained by each open instance of gardens, against the heap its fully loaded template takes
+     */
+    @GameTest(structureName = EMPTY_STRUCTURE, tickLimit = 1200, batchId = "memory_template_heap")
+    public void templateHeap(TestContext context) {
+        var check = new TemplateHeapCheck(context.getWorld().getServer(), DeathRun.id("loadtest/gardens"), 4);
+        context.addFinalTask(check::tick);
+    }
+
+    /**
+     * Opening and closing 100 games of gardens leaves no worlds and no heap behind
+     */
+    @GameTest(structureName = EMPTY_STRUCTURE, tickLimit = 6000, batchId = "memory_open_close")
+    public void openCloseLeak(TestContext context) {
+        var check = new OpenCloseLeakCheck(context.getWorld().getServer(), DeathRun.id("loadtest/gardens"), 100);
+        context.addFinalTask(check::tick);
+    }
+
+    /**
+     * Real arrows still kill a runner far from every trap zone while runner checks are at their lowest level of detail
+     */
+    @GameTest(structureName = EMPTY_STRUCTURE, tickLimit = 3000, batchId = "load_lod_hazards")
+    public void lodHazards(TestContext context) {
+        // Measures nothing, the scenario only keeps the game running until the check stops it
+        var scenario = LoadScenario.start(context.getWorld().getServer(), new LoadScenario.Options("lod_hazards", DeathRun.id("loadtest/gardens_lod"), 1, 40, 0, 3000));
+        var check = new LodHazardCheck(scenario);
+        context.addFinalTask(check::tick);
+    }
+}
@@ -0,0 +1,86 @@
+package io.github.foundationgames.deathrun.test;
+
+import io.github.foundationgames.deathrun.DeathRun;
+import io.github.foundationgames.deathrun.game.state.DeathCause;
+import io.github.foundationgames.deathrun.game.state.logic.DREventLog;
+import net.minecraft.test.GameTestException;
+import net.minecraft.util.math.BlockPos;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Logs batches of events from the server thread once per tick, as the games would, and measures the
+ * time and allocation per event. Batches are a quarter of the ring so that the writer keeps up.
+ */
+public class EventLogBenchmark {
+    public static final double TARGET_NANOS = 1000;
+
+    private static final int BATCH = 2048;
+    private static final int WARMUP_TICKS = 40;
+    private static final int MEASURE_TICKS = 200;
+    private static final UUID PLAYER = UUID.nameUUIDFromBytes(new byte[] {1});
+
+    private static final com.sun.management.ThreadMXBean THREADS = ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean
+            && bean.isThreadAllocatedMemorySupported() ? bean : null;
+
+    private final long[] batchNanos = new long[MEASURE_TICKS];
+    private final int game;
+    private final long pos = BlockPos.asLong(12, 64, -30);
+    private int ticks = 0;
+    private long bytes = 0;
+    private long droppedStart;
+    private boolean done = false;
+    private double nanosPerEvent;
+
+    public EventLogBenchmark(long tick) {
+        this.game = DREventLog.open(DeathRun.id("benchmark"), tick);
+    }
+
+    /**
+     * Logs one batch
+     *
+     * @throws GameTestException until the benchmark is done, and after if the target was missed
+     */
+    public void tick() {
+        if (!done) {
+            if (ticks == WARMUP_TICKS) droppedStart = DREventLog.getDropped();
+            long alloc = allocated();
+            long start = System.nanoTime();
+            for (int i = 0; i < BATCH; i++) {
+                DREventLog.log(game, DREventLog.Type.DEATH, ticks, PLAYER, DeathCause.ENTITY.ordinal(), pos);
+            }
+            long time = System.nanoTime() - start;
+            if (ticks >= WARMUP_TICKS) {
+                batchNanos[ticks - WARMUP_TICKS] = time;
+                bytes += allocated() - alloc;
+            }
+            if (++ticks == WARMUP_TICKS + MEASURE_TICKS) finish();
+            else throw new GameTestException("Logged " + ticks + " batches of events");
+        }
+        if (nanosPerEvent > TARGET_NANOS) {
+            throw new GameTestException(String.format("Logging an event took %.1f ns on average, over the target of %.0f ns", nanosPerEvent, TARGET_NANOS));
+        }
+    }
+
+    private void finish() {
+        done = true;
+        DREventLog.close(game, ticks);
+        long events = (long) BATCH * MEASURE_TICKS;
+        nanosPerEvent = (double) Arrays.stream(batchNanos).sum() / events;
+        var sorted = batchNanos.clone();
+        Arrays.sort(sorted);
+        LoadScenario.write("event_log", List.of(
+                String.format("events: %d in batches of %d", events, BATCH),
+                String.format("per event: avg %.1f ns, p99 batch %.1f ns, target %.0f ns", nanosPerEvent, (double) sorted[(int) (sorted.length * 0.99)] / BATCH, TARGET_NANOS),
+                String.format("allocation: %s B per event", THREADS == null ? "n/a" : String.format("%.3f", (double) bytes / events)),
+                String.format("dropped: %d", DREventLog.getDropped() - droppedStart)
+        ));
+    }
+
+    private static long allocated() {
+        return THREADS == null ? 0 : THREADS.getCurrentThreadAllocatedBytes();
+    }
+}
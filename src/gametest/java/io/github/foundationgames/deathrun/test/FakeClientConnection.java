@@ -0,0 +1,90 @@
+package io.github.foundationgames.deathrun.test;
+
+import io.netty.buffer.Unpooled;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.GenericFutureListener;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import net.minecraft.network.ClientConnection;
+import net.minecraft.network.NetworkSide;
+import net.minecraft.network.Packet;
+import net.minecraft.network.PacketByteBuf;
+import net.minecraft.text.Text;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Connection of a fake player, without a channel. Packets sent to the player are counted by type and dropped.
+ * With byte counting enabled, each packet is also serialized to count its payload bytes, without the
+ * packet id and the compression a real connection adds.
+ */
+public class FakeClientConnection extends ClientConnection {
+    private final Object2IntOpenHashMap<Class<?>> sent = new Object2IntOpenHashMap<>();
+    private long sentTotal = 0;
+    private boolean countBytes = false;
+    private long sentBytes = 0;
+    private @Nullable Text disconnectReason;
+
+    public FakeClientConnection() {
+        super(NetworkSide.SERVERBOUND);
+    }
+
+    @Override
+    public void send(Packet<?> packet, @Nullable GenericFutureListener<? extends Future<? super Void>> callback) {
+        sent.addTo(packet.getClass(), 1);
+        sentTotal++;
+        if (countBytes) {
+            var buf = new PacketByteBuf(Unpooled.buffer());
+            try {
+                packet.write(buf);
+                sentBytes += buf.readableBytes();
+            } catch (Exception ignored) {
+                // Some packets can only be written on a real connection
+            } finally {
+                buf.release();
+            }
+        }
+    }
+
+    @Override
+    public boolean isOpen() {
+        return disconnectReason == null;
+    }
+
+    @Override
+    public void disconnect(Text reason) {
+        disconnectReason = reason;
+    }
+
+    @Override
+    public void disableAutoRead() {
+    }
+
+    @Override
+    public void handleDisconnection() {
+    }
+
+    public int getSent(Class<? extends Packet<?>> type) {
+        return sent.getInt(type);
+    }
+
+    public long getSentTotal() {
+        return sentTotal;
+    }
+
+    public long getSentBytes() {
+        return sentBytes;
+    }
+
+    public void setCountBytes(boolean countBytes) {
+        this.countBytes = countBytes;
+    }
+
+    public void resetSent() {
+        sent.clear();
+        sentTotal = 0;
+        sentBytes = 0;
+    }
+
+    public @Nullable Text getDisconnectReason() {
+        return disconnectReason;
+    }
+}
@@ -0,0 +1,491 @@
+package io.github.foundationgames.deathrun.test;
+
+import io.github.foundationgames.deathrun.DeathRun;
+import io.github.foundationgames.deathrun.game.map.ChunkPacketCache;
+import io.github.foundationgames.deathrun.game.state.DRGame;
+import io.github.foundationgames.deathrun.game.state.DRTeam;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerTickEvents;
+import net.fabricmc.loader.api.FabricLoader;
+import net.minecraft.network.packet.s2c.play.ChunkDataS2CPacket;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.test.GameTestException;
+import net.minecraft.util.Identifier;
+import org.jetbrains.annotations.Nullable;
+import xyz.nucleoid.plasmid.game.GameCloseReason;
+import xyz.nucleoid.plasmid.game.GameSpace;
+import xyz.nucleoid.plasmid.game.config.GameConfigs;
+import xyz.nucleoid.plasmid.game.manager.GameSpaceManager;
+import xyz.nucleoid.plasmid.game.manager.ManagedGameSpace;
+import xyz.nucleoid.plasmid.game.player.GamePlayerJoiner;
+
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Opens a game, fills it with {@link Bot}s, and once the game started and warmed up measures the
+ * server's tick time, the server thread's allocations and garbage collection over a number of ticks.
+ * Joining and the game start are measured too, as server thread CPU time and the chunk packets
+ * the bots were sent. The report is written to {@code deathrun/loadtest} with the game's own phase
+ * metrics appended, after which the game is closed and the bots disconnect. Scenarios run one after another.
+ */
+public class LoadScenario {
+    // Ticks a stage may take before the scenario gives up
+    private static final int STAGE_TIMEOUT = 1200;
+    private static final int LATENCY_MIN = 30;
+    private static final int LATENCY_MAX = 250;
+    // Ticks without a chunk packet after which joining players are considered loaded in
+    private static final int SETTLE_TICKS = 20;
+
+    private static final List<LoadScenario> RUNNING = new ArrayList<>();
+    private static boolean registered = false;
+
+    private static final com.sun.management.ThreadMXBean THREADS = ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean
+            && bean.isThreadAllocatedMemorySupported() ? bean : null;
+
+    public final Options options;
+    private final MinecraftServer server;
+    private final List<Bot> bots = new ArrayList<>();
+    private final long[] tickNanos;
+    private final long[] tickBytes;
+    private final Window joinWindow = new Window("join", true);
+    private final Window startWindow = new Window("start", false);
+    private @Nullable LoadScenario next;
+
+    private Stage stage = Stage.OPENING;
+    private int stageTicks = 0;
+    private int measured = 0;
+    private @Nullable CompletableFuture<ManagedGameSpace> opening;
+    private @Nullable GameSpace space;
+    private @Nullable ServerWorld world;
+    private @Nullable DRGame game;
+    private long tickStart;
+    private long allocStart;
+    private long cpuStart;
+    private long openStart;
+    private long openNanos;
+    private int openTicks;
+    private long gcCount;
+    private long gcMillis;
+    private @Nullable Report report;
+    private @Nullable String failure;
+
+    /**
+     * @param name name of the report file
+     * @param config game config to open, from {@code data/<namespace>/games}
+     * @param players number of bots to join the game
+     * @param pressInterval average ticks between a death bot's trap button presses
+     * @param warmupTicks ticks after the game started before measuring
+     * @param measureTicks ticks to measure
+     * @param countBytes whether the bytes of the packets sent while measuring are counted, which costs tick time
+     */
+    public record Options(String name, Identifier config, int players, int pressInterval, int warmupTicks, int measureTicks, boolean countBytes) {
+        public Options(String name, Identifier config, int players, int pressInterval, int warmupTicks, int measureTicks) {
+            this(name, config, players, pressInterval, warmupTicks, measureTicks, false);
+        }
+
+        public Options withName(String name, Identifier config) {
+            return new Options(name, config, players, pressInterval, warmupTicks, measureTicks, countBytes);
+        }
+
+        public Options withPlayers(String name, int players) {
+            return new Options(name, config, players, pressInterval, warmupTicks, measureTicks, countBytes);
+        }
+
+        public Options withCountBytes() {
+            return new Options(name, config, players, pressInterval, warmupTicks, measureTicks, true);
+        }
+    }
+
+    private LoadScenario(MinecraftServer server, Options options) {
+        this.server = server;
+        this.options = options;
+        this.tickNanos = new long[options.measureTicks()];
+        this.tickBytes = new long[options.measureTicks()];
+    }
+
+    public static LoadScenario start(MinecraftServer server, Options options) {
+        if (!registered) {
+            registered = true;
+            ServerTickEvents.START_SERVER_TICK.register(s -> RUNNING.forEach(LoadScenario::startTick));
+            ServerTickEvents.END_SERVER_TICK.register(s -> List.copyOf(RUNNING).forEach(LoadScenario::endTick));
+        }
+        var scenario = new LoadScenario(server, options);
+        RUNNING.add(scenario);
+        return scenario;
+    }
+
+    /**
+     * Runs another scenario once this one is done
+     *
+     * @return the other scenario
+     */
+    public LoadScenario then(Options options) {
+        this.next = new LoadScenario(server, options);
+        return next;
+    }
+
+    /**
+     * @throws GameTestException until the scenario is done, or with the reason it failed
+     */
+    public Report getReport() {
+        if (failure != null) throw new GameTestException("Load scenario " + options.name() + " failed: " + failure);
+        if (report == null) throw new GameTestException("Load scenario " + options.name() + " is " + stage.name().toLowerCase());
+        return report;
+    }
+
+    public boolean isDone() {
+        return stage == Stage.DONE;
+    }
+
+    /**
+     * Ends the scenario without a report
+     */
+    public void stop() {
+        if (stage != Stage.DONE) close();
+    }
+
+    public List<Bot> getBots() {
+        return bots;
+    }
+
+    public @Nullable DRGame getGame() {
+        return game;
+    }
+
+    private void startTick() {
+        tickStart = System.nanoTime();
+        allocStart = allocated();
+        cpuStart = cpuTime();
+    }
+
+    private void endTick() {
+        try {
+            tick();
+        } catch (RuntimeException e) {
+            DeathRun.LOG.error("Load scenario {} failed", options.name(), e);
+            fail(e.toString());
+        }
+        long cpu = cpuTime() - cpuStart;
+        long chunks = sentChunks();
+        joinWindow.tick(cpu, chunks);
+        startWindow.tick(cpu, chunks);
+        if (stage == Stage.MEASURING && measured < tickNanos.length) {
+            tickNanos[measured] = System.nanoTime() - tickStart;
+            tickBytes[measured] = allocated() - allocStart;
+            measured++;
+        }
+    }
+
+    private void tick() {
+        if (++stageTicks > STAGE_TIMEOUT && stage != Stage.MEASURING) {
+            fail("timed out while " + stage.name().toLowerCase());
+            return;
+        }
+        if (world != null) game = DRGame.get(world);
+        for (var bot : bots) bot.tick(game);
+
+        switch (stage) {
+            case OPENING -> {
+                if (opening == null) {
+                    var config = GameConfigs.get(options.config());
+                    if (config == null) {
+                        fail("no game config " + options.config());
+                        return;
+                    }
+                    openStart = System.nanoTime();
+                    opening = GameSpaceManager.get().open(config);
+                }
+                if (!opening.isDone()) return;
+                openNanos = System.nanoTime() - openStart;
+                openTicks = stageTicks;
+                space = opening.join();
+                joinWindow.begin(0);
+                join();
+                setStage(Stage.WAITING);
+            }
+            case WAITING -> {
+                if (game != null && !startWindow.open) {
+                    joinWindow.end();
+                    startWindow.begin(sentChunks());
+                }
+                if (game != null && game.players.get(bots.get(0).player) instanceof DRGame.Player player && player.isStarted()) {
+                    startWindow.end();
+                    setStage(Stage.WARMUP);
+                }
+            }
+            case WARMUP -> {
+                if (stageTicks >= options.warmupTicks()) {
+                    for (var bot : bots) {
+                        bot.connection.resetSent();
+                        bot.connection.setCountBytes(options.countBytes());
+                    }
+                    gcCount = gcCount();
+                    gcMillis = gcMillis();
+                    setStage(Stage.MEASURING);
+                }
+            }
+            case MEASURING -> {
+                // The game may end by itself before the measurement does
+                if (measured >= tickNanos.length || game == null) finish();
+            }
+            default -> {}
+        }
+    }
+
+    private void join() {
+        for (int i = 0; i < options.players(); i++) {
+            int latency = LATENCY_MIN + (int) ((long) i * 7919 % (LATENCY_MAX - LATENCY_MIN));
+            var bot = Bot.connect(server, "Bot" + i, latency, options.pressInterval(), i);
+            bots.add(bot);
+            GamePlayerJoiner.tryJoin(bot.player, space);
+        }
+        world = bots.get(0).player.getServerWorld();
+    }
+
+    private void finish() {
+        if (measured < 20) {
+            fail("the game ended after " + measured + " measured ticks");
+            return;
+        }
+        report = new Report(options.name(), bots.size(), measured,
+                Arrays.copyOf(tickNanos, measured), Arrays.copyOf(tickBytes, measured),
+                gcCount() - gcCount, gcMillis() - gcMillis, sentPackets(), options.countBytes() ? sentBytes() : -1,
+                game != null ? countTeam(DRTeam.RUNNERS) : 0,
+                List.of(String.format("open: %.1f ms within %d ticks", openNanos / 1_000_000d, openTicks), joinWindow.format(), startWindow.format()),
+                game != null ? summarizeGame(game) : List.of());
+        report.write();
+        close();
+    }
+
+    // The game reports some counters only when it closes
+    private static List<String> summarizeGame(DRGame game) {
+        var lines = game.metrics.summarize();
+        if (!lines.isEmpty() && game.arena.isEnabled()) {
+            lines.add(String.format("%-32s %d", "arena_chunk_ticks", game.arena.getChunkTicks()));
+            lines.add(String.format("%-32s %d", "arena_chunk_ticks_skipped", game.arena.getChunkTicksSkipped()));
+            lines.add(String.format("%-32s %d", "arena_block_ticks_deferred", game.arena.getBlockTicksSkipped()));
+            lines.add(String.format("%-32s %d", "arena_block_entity_ticks_skipped", game.arena.getBlockEntityTicksSkipped()));
+        }
+        if (!lines.isEmpty() && game.snapshots.getBytesWritten() > 0) {
+            lines.add(String.format("%-32s %d", "snapshot_bytes_written", game.snapshots.getBytesWritten()));
+        }
+        return lines;
+    }
+
+    private void fail(String reason) {
+        failure = reason;
+        for (var after = next; after != null; after = after.next) after.failure = "an earlier scenario failed";
+        close();
+    }
+
+    private void close() {
+        setStage(Stage.DONE);
+        RUNNING.remove(this);
+        // Closed as finished, so that its recovery log is not restored into the next game of the map
+        if (space != null) space.close(GameCloseReason.FINISHED);
+        for (var bot : bots) bot.disconnect();
+        if (next != null && failure == null) RUNNING.add(next);
+    }
+
+    private void setStage(Stage stage) {
+        this.stage = stage;
+        this.stageTicks = 0;
+    }
+
+    private int countTeam(DRTeam team) {
+        int count = 0;
+        for (var bot : bots) {
+            if (game.players.get(bot.player) instanceof DRGame.Player player && player.team == team) count++;
+        }
+        return count;
+    }
+
+    private long sentPackets() {
+        long sent = 0;
+        for (var bot : bots) sent += bot.connection.getSentTotal();
+        return sent;
+    }
+
+    private long sentBytes() {
+        long sent = 0;
+        for (var bot : bots) sent += bot.connection.getSentBytes();
+        return sent;
+    }
+
+    private long sentChunks() {
+        long sent = 0;
+        for (var bot : bots) sent += bot.connection.getSent(ChunkDataS2CPacket.class);
+        return sent;
+    }
+
+    private static long cpuTime() {
+        return THREADS == null ? 0 : THREADS.getCurrentThreadCpuTime();
+    }
+
+    private static long allocated() {
+        return THREADS == null ? 0 : THREADS.getCurrentThreadAllocatedBytes();
+    }
+
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) count += Math.max(0, gc.getCollectionCount());
+        return count;
+    }
+
+    private static long gcMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) millis += Math.max(0, gc.getCollectionTime());
+        return millis;
+    }
+
+    private enum Stage {
+        OPENING, WAITING, WARMUP, MEASURING, DONE
+    }
+
+    /**
+     * Server thread CPU time and chunk packets sent to the bots from when the window begins until the
+     * last chunk packet it saw. A settling window ends once no chunk packet was sent for a while.
+     */
+    private static class Window {
+        private final String name;
+        private final boolean settles;
+        private boolean open = false;
+        private boolean closed = false;
+        private int ticks = 0;
+        private int lastChunkTick = 0;
+        private long cpu = 0;
+        private long cpuAtLastChunk = 0;
+        private long chunksStart;
+        private long chunks = 0;
+        private long hitsStart;
+        private long missesStart;
+        private long hits = 0;
+        private long misses = 0;
+
+        private Window(String name, boolean settles) {
+            this.name = name;
+            this.settles = settles;
+        }
+
+        private void begin(long sentChunks) {
+            open = true;
+            chunksStart = sentChunks;
+            hitsStart = ChunkPacketCache.getHits();
+            missesStart = ChunkPacketCache.getMisses();
+        }
+
+        private void tick(long cpu, long sentChunks) {
+            if (!open || closed) return;
+            ticks++;
+            this.cpu += cpu;
+            if (sentChunks - chunksStart != chunks) {
+                chunks = sentChunks - chunksStart;
+                lastChunkTick = ticks;
+                cpuAtLastChunk = this.cpu;
+                hits = ChunkPacketCache.getHits() - hitsStart;
+                misses = ChunkPacketCache.getMisses() - missesStart;
+            }
+            if (settles && ticks - lastChunkTick >= SETTLE_TICKS) closed = true;
+        }
+
+        private void end() {
+            closed = true;
+        }
+
+        private String format() {
+            return String.format("%s: %d chunk packets within %d ticks, %.1f ms server thread cpu, %d packets from the cache, %d serialized",
+                    name, chunks, lastChunkTick, cpuAtLastChunk / 1_000_000d, hits, misses);
+        }
+    }
+
+    /**
+     * Results of a scenario. Tick times include the bots' packet handling and player ticks,
+     * which a real server does for real clients too.
+     */
+    public record Report(String name, int players, int ticks, long[] tickNanos, long[] tickBytes, long gcCount, long gcMillis, long sentPackets, long sentBytes, int runners, List<String> startup, List<String> gameMetrics) {
+        public double msptAverage() {
+            return Arrays.stream(tickNanos).average().orElse(0) / 1_000_000d;
+        }
+
+        public double msptPercentile(double percentile) {
+            var sorted = tickNanos.clone();
+            Arrays.sort(sorted);
+            return sorted[Math.min(sorted.length - 1, (int) (sorted.length * percentile))] / 1_000_000d;
+        }
+
+        public double bytesPerTick() {
+            return THREADS == null ? Double.NaN : Arrays.stream(tickBytes).average().orElse(0);
+        }
+
+        /**
+         * @return the payload bytes sent per player and tick, or NaN if bytes were not counted
+         */
+        public double bytesSentPerPlayerTick() {
+            return sentBytes < 0 ? Double.NaN : (double) sentBytes / Math.max(1, players) / ticks;
+        }
+
+        public List<String> format() {
+            var lines = new ArrayList<String>();
+            lines.add("DeathRun load test " + name);
+            lines.add("players: " + players + " (" + runners + " runners)");
+            lines.add("measured ticks: " + ticks);
+            lines.add(String.format("mspt: avg %.3f, p50 %.3f, p95 %.3f, p99 %.3f, max %.3f",
+                    msptAverage(), msptPercentile(0.5), msptPercentile(0.95), msptPercentile(0.99), msptPercentile(1)));
+            lines.add(String.format("server thread allocation: %.0f B/tick, %.2f MB/s at 20 TPS", bytesPerTick(), bytesPerTick() * 20 / 1_000_000d));
+            lines.add(String.format("gc: %d collections, %d ms", gcCount, gcMillis));
+            lines.add(String.format("packets sent: %.2f per player per tick", (double) sentPackets / Math.max(1, players) / ticks));
+            if (sentBytes >= 0) lines.add(String.format("bytes sent: %.1f per player per tick", bytesSentPerPlayerTick()));
+            lines.addAll(startup);
+            if (!gameMetrics.isEmpty()) {
+                lines.add("");
+                lines.addAll(gameMetrics);
+            }
+            return lines;
+        }
+
+        /**
+         * @return the game's metrics line of a phase or counter, or an empty string without metrics
+         */
+        public String gameMetric(String name) {
+            for (var line : gameMetrics) {
+                if (line.startsWith(name + " ")) return line;
+            }
+            return "";
+        }
+
+        /**
+         * @return the average and maximum microseconds per tick of a phase of the game's metrics, or NaN without metrics
+         */
+        public double[] gamePhase(String name) {
+            var columns = gameMetric(name).trim().split("\\s+");
+            if (columns.length < 3) return new double[] {Double.NaN, Double.NaN};
+            return new double[] {Double.parseDouble(columns[1].replace(',', '.')), Double.parseDouble(columns[2].replace(',', '.'))};
+        }
+
+        public void write() {
+            LoadScenario.write(name, format());
+        }
+    }
+
+    /**
+     * Logs the lines and writes them to a report of the given name
+     */
+    public static void write(String name, List<String> lines) {
+        lines.forEach(DeathRun.LOG::info);
+        Path file = FabricLoader.getInstance().getGameDir().resolve(DeathRun.MOD_ID).resolve("loadtest").resolve(name + ".txt");
+        try {
+            Files.createDirectories(file.getParent());
+            Files.write(file, lines);
+        } catch (IOException e) {
+            DeathRun.LOG.error("Failed to write load test report", e);
+        }
+    }
+}
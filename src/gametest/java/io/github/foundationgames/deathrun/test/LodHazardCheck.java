@@ -0,0 +1,137 @@
+package io.github.foundationgames.deathrun.test;
+
+import io.github.foundationgames.deathrun.game.state.DRGame;
+import io.github.foundationgames.deathrun.game.state.logic.DRRunnerLod;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerTickEvents;
+import net.minecraft.entity.projectile.ArrowEntity;
+import net.minecraft.test.GameTestException;
+import net.minecraft.util.math.Vec3d;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+
+/**
+ * Overloads the server until runner checks are at their lowest level of detail, then fires real
+ * arrows at a runner standing in open air far from every trap zone. Every arrow fired at the
+ * runner must kill it, which the bot sees as the teleport back to its checkpoint.
+ */
+public class LodHazardCheck {
+    private static final long OVERLOAD_NANOS = 60_000_000;
+    private static final int ARROWS = 20;
+    private static final int ARROW_DISTANCE = 12;
+    private static final int SETTLE_TICKS = 3;
+    private static final int HIT_TIMEOUT = 20;
+
+    private static @Nullable LodHazardCheck overloading;
+    private static boolean registered = false;
+
+    private final LoadScenario scenario;
+    private State state = State.STARTING;
+    private int stateTicks = 0;
+    private long teleports;
+    private @Nullable ArrowEntity arrow;
+    private int fired = 0;
+    private int caught = 0;
+    private int lowestLevel = DRRunnerLod.MAX_LEVEL;
+
+    public LodHazardCheck(LoadScenario scenario) {
+        this.scenario = scenario;
+        if (!registered) {
+            registered = true;
+            ServerTickEvents.START_SERVER_TICK.register(server -> {
+                // Also stops should the test end before the check does
+                if (overloading == null || overloading.scenario.isDone()) return;
+                long end = System.nanoTime() + OVERLOAD_NANOS;
+                while (System.nanoTime() < end) Thread.onSpinWait();
+            });
+        }
+    }
+
+    /**
+     * Advances the check by a tick
+     *
+     * @throws GameTestException until the check is done, and after if an arrow was missed
+     */
+    public void tick() {
+        if (state == State.DONE) {
+            if (caught < fired) throw new GameTestException(String.format("Only %d of %d arrows fired at the runner killed it", caught, fired));
+            return;
+        }
+        stateTicks++;
+        var game = scenario.getGame();
+        var bots = scenario.getBots();
+        if (game == null || bots.isEmpty()) throw new GameTestException("Waiting for the game");
+        var bot = bots.get(0);
+
+        switch (state) {
+            case STARTING -> {
+                if (game.players.get(bot.player) instanceof DRGame.Player player && player.isStarted()) {
+                    bot.setIdle(true);
+                    overloading = this;
+                    setState(State.OVERLOADING);
+                }
+            }
+            case OVERLOADING -> {
+                if (game.lod.getLevel() == DRRunnerLod.MAX_LEVEL) setState(State.PLACING);
+            }
+            case PLACING -> {
+                if (stateTicks == 1) {
+                    var spot = getSpot(game);
+                    bot.player.networkHandler.requestTeleport(spot.x, spot.y, spot.z, 0, 0);
+                }
+                if (stateTicks > SETTLE_TICKS) {
+                    teleports = bot.getTeleports();
+                    var pos = bot.player.getPos();
+                    arrow = new ArrowEntity(game.world, pos.x + ARROW_DISTANCE, pos.y + 1.2, pos.z);
+                    arrow.setVelocity(-1, 0.05, 0, 3, 0);
+                    game.world.spawnEntity(arrow);
+                    lowestLevel = Math.min(lowestLevel, game.lod.getLevel());
+                    fired++;
+                    setState(State.FIRING);
+                }
+            }
+            case FIRING -> {
+                if (bot.getTeleports() > teleports) {
+                    caught++;
+                    next();
+                } else if (stateTicks > HIT_TIMEOUT) {
+                    next();
+                }
+            }
+            default -> {}
+        }
+        throw new GameTestException("Fired " + fired + " arrows, " + state.name().toLowerCase());
+    }
+
+    private void next() {
+        if (arrow != null) arrow.discard();
+        arrow = null;
+        if (fired < ARROWS) {
+            setState(State.PLACING);
+            return;
+        }
+        setState(State.DONE);
+        overloading = null;
+        scenario.stop();
+        LoadScenario.write("lod_hazards", List.of(
+                String.format("arrows fired: %d, runner killed: %d", fired, caught),
+                String.format("lowest runner check level while firing: %d of %d", lowestLevel, DRRunnerLod.MAX_LEVEL)
+        ));
+    }
+
+    // Open air above the middle of the map, out of reach of every trap zone
+    private static Vec3d getSpot(DRGame game) {
+        var bounds = game.map.templateBounds;
+        var center = bounds.center();
+        return new Vec3d(center.x, bounds.max().getY() + 30, center.z);
+    }
+
+    private void setState(State state) {
+        this.state = state;
+        this.stateTicks = 0;
+    }
+
+    private enum State {
+        STARTING, OVERLOADING, PLACING, FIRING, DONE
+    }
+}
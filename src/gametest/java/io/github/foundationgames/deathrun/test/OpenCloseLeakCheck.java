@@ -0,0 +1,113 @@
+package io.github.foundationgames.deathrun.test;
+
+import com.google.common.collect.Iterables;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.test.GameTestException;
+import net.minecraft.util.Identifier;
+import org.jetbrains.annotations.Nullable;
+import xyz.nucleoid.plasmid.game.GameCloseReason;
+import xyz.nucleoid.plasmid.game.config.GameConfigs;
+import xyz.nucleoid.plasmid.game.manager.GameSpaceManager;
+import xyz.nucleoid.plasmid.game.manager.ManagedGameSpace;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Opens and closes a game many times over, one after another, then checks that the server is
+ * back to as many worlds as before and that the heap after a full collection has not grown
+ * beyond a small allowance. A first game is opened and closed before the baseline is taken, so
+ * that classes and one time caches are not counted.
+ */
+public class OpenCloseLeakCheck {
+    public static final long ALLOWED_GROWTH = 16 * 1024 * 1024;
+
+    private static final int OPEN_TICKS = 5;
+    private static final int CLOSED_TICKS = 40;
+
+    private final MinecraftServer server;
+    private final Identifier configId;
+    private final int games;
+    private int cycle = 0;
+    private int ticks = 0;
+    private @Nullable CompletableFuture<ManagedGameSpace> opening;
+    private @Nullable ManagedGameSpace space;
+    private long baselineHeap;
+    private int baselineWorlds;
+    private @Nullable String failure;
+    private boolean done = false;
+
+    public OpenCloseLeakCheck(MinecraftServer server, Identifier configId, int games) {
+        this.server = server;
+        this.configId = configId;
+        this.games = games;
+    }
+
+    /**
+     * Advances the check by a tick
+     *
+     * @throws GameTestException until the check is done, or with the reason it failed
+     */
+    public void tick() {
+        if (failure != null) throw new GameTestException(failure);
+        if (done) return;
+        ticks++;
+
+        if (opening == null && space == null) {
+            // Runtime worlds are unloaded a few ticks after their game closes
+            if ((cycle == 1 || cycle > games) && ticks < CLOSED_TICKS) throw new GameTestException("Waiting for the world to unload");
+            if (cycle == 1) {
+                baselineWorlds = worldCount();
+                baselineHeap = TemplateHeapCheck.usedHeap();
+            }
+            if (cycle > games) {
+                finish();
+                return;
+            }
+            var config = GameConfigs.get(configId);
+            if (config == null) throw new GameTestException("No game config " + configId);
+            opening = GameSpaceManager.get().open(config);
+            ticks = 0;
+        }
+        if (opening != null) {
+            if (!opening.isDone()) throw new GameTestException("Opening game " + cycle);
+            if (opening.isCompletedExceptionally()) {
+                failure = "Game " + cycle + " failed to open";
+                throw new GameTestException(failure);
+            }
+            space = opening.join();
+            opening = null;
+            ticks = 0;
+        }
+        if (space != null && ticks >= OPEN_TICKS) {
+            space.close(GameCloseReason.FINISHED);
+            space = null;
+            cycle++;
+            ticks = 0;
+        }
+        throw new GameTestException("Opened and closed " + Math.max(0, cycle - 1) + " of " + games + " games");
+    }
+
+    private void finish() {
+        done = true;
+        int worlds = worldCount();
+        long heap = TemplateHeapCheck.usedHeap();
+        long growth = heap - baselineHeap;
+        LoadScenario.write("open_close_leak", List.of(
+                String.format("games opened and closed: %d", games),
+                String.format("worlds: %d before, %d after", baselineWorlds, worlds),
+                String.format("heap after full collection: %d KiB before, %d KiB after, growth %d KiB, allowed %d KiB",
+                        baselineHeap / 1024, heap / 1024, growth / 1024, ALLOWED_GROWTH / 1024)
+        ));
+        if (worlds != baselineWorlds) {
+            failure = String.format("%d worlds were left open by closed games", worlds - baselineWorlds);
+        } else if (growth > ALLOWED_GROWTH) {
+            failure = String.format("Heap grew by %d KiB over %d games", growth / 1024, games);
+        }
+        if (failure != null) throw new GameTestException(failure);
+    }
+
+    private int worldCount() {
+        return Iterables.size(server.getWorlds());
+    }
+}
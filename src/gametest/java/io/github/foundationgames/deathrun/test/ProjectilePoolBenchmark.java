@@ -0,0 +1,115 @@
+package io.github.foundationgames.deathrun.test;
+
+import io.github.foundationgames.deathrun.game.state.logic.entity.ProjectilePool;
+import net.minecraft.entity.projectile.ArrowEntity;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.test.GameTestException;
+import net.minecraft.util.math.Vec3d;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+/**
+ * Shoots volleys of arrows the way a dispenser trap does, spawning each into the world and discarding
+ * it, first allocating a new arrow per shot and then taking arrows from a {@link ProjectilePool}.
+ * Measures the server thread's allocation and time per shot, and the collections while each ran.
+ */
+public class ProjectilePoolBenchmark {
+    private static final int VOLLEY = 64;
+    private static final int WARMUP_TICKS = 40;
+    private static final int MEASURE_TICKS = 200;
+
+    private static final com.sun.management.ThreadMXBean THREADS = ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean
+            && bean.isThreadAllocatedMemorySupported() ? bean : null;
+
+    private final ServerWorld world;
+    private final Vec3d pos;
+    private final ProjectilePool pool;
+    private final Run unpooled = new Run();
+    private final Run pooled = new Run();
+    private int ticks = 0;
+    private boolean done = false;
+    private @Nullable String failure;
+
+    public ProjectilePoolBenchmark(ServerWorld world, Vec3d pos) {
+        this.world = world;
+        this.pos = pos;
+        this.pool = new ProjectilePool(world);
+    }
+
+    /**
+     * Shoots one volley
+     *
+     * @throws GameTestException until the benchmark is done, and after if pooling did not allocate less
+     */
+    public void tick() {
+        if (failure != null) throw new GameTestException(failure);
+        if (done) return;
+        int run = WARMUP_TICKS + MEASURE_TICKS;
+        if (ticks < run) {
+            volley(false, ticks >= WARMUP_TICKS ? unpooled : null);
+        } else {
+            volley(true, ticks >= run + WARMUP_TICKS ? pooled : null);
+        }
+        if (++ticks < 2 * run) throw new GameTestException("Shot " + ticks + " volleys");
+        finish();
+    }
+
+    private void volley(boolean usePool, @Nullable Run run) {
+        if (run != null && run.gcStart < 0) run.gcStart = gcCount();
+        long alloc = allocated();
+        long start = System.nanoTime();
+        for (int i = 0; i < VOLLEY; i++) {
+            var arrow = usePool ? pool.arrow(pos.x, pos.y, pos.z) : new ArrowEntity(world, pos.x, pos.y, pos.z);
+            arrow.setVelocity(1, 0.1, 0, 1.1f, 6);
+            world.spawnEntity(arrow);
+            arrow.discard();
+            if (usePool) pool.release(arrow);
+        }
+        if (run != null) {
+            run.nanos += System.nanoTime() - start;
+            run.bytes += allocated() - alloc;
+            run.gcEnd = gcCount();
+        }
+    }
+
+    private void finish() {
+        done = true;
+        long shots = (long) VOLLEY * MEASURE_TICKS;
+        LoadScenario.write("projectile_pool", List.of(
+                String.format("shots: %d per run, in volleys of %d", shots, VOLLEY),
+                String.format("new arrow per shot: %s B and %.1f us per shot, %d collections", unpooled.bytesPerShot(shots), unpooled.nanos / 1000d / shots, unpooled.gcEnd - unpooled.gcStart),
+                String.format("pooled arrows:      %s B and %.1f us per shot, %d collections", pooled.bytesPerShot(shots), pooled.nanos / 1000d / shots, pooled.gcEnd - pooled.gcStart),
+                String.format("arrows created by the pool: %d, reused: %d", pool.getCreated(), pool.getReused())
+        ));
+        if (pool.getReused() == 0) {
+            failure = "The pool reused no arrows";
+        } else if (THREADS != null && pooled.bytes >= unpooled.bytes) {
+            failure = "Pooled arrows allocated no less than new arrows";
+        }
+        if (failure != null) throw new GameTestException(failure);
+    }
+
+    private static long allocated() {
+        return THREADS == null ? 0 : THREADS.getCurrentThreadAllocatedBytes();
+    }
+
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) count += Math.max(0, gc.getCollectionCount());
+        return count;
+    }
+
+    private static class Run {
+        private long nanos = 0;
+        private long bytes = 0;
+        private long gcStart = -1;
+        private long gcEnd = 0;
+
+        private String bytesPerShot(long shots) {
+            return THREADS == null ? "n/a" : String.format("%.0f", (double) bytes / shots);
+        }
+    }
+}
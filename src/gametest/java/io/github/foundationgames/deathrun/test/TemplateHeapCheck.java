@@ -0,0 +1,109 @@
+package io.github.foundationgames.deathrun.test;
+
+import io.github.foundationgames.deathrun.game.DeathRunConfig;
+import io.github.foundationgames.deathrun.game.map.SharedTemplates;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.test.GameTestException;
+import net.minecraft.util.Identifier;
+import org.jetbrains.annotations.Nullable;
+import xyz.nucleoid.map_templates.MapTemplate;
+import xyz.nucleoid.map_templates.MapTemplateSerializer;
+import xyz.nucleoid.plasmid.game.GameCloseReason;
+import xyz.nucleoid.plasmid.game.config.GameConfigs;
+import xyz.nucleoid.plasmid.game.manager.GameSpaceManager;
+import xyz.nucleoid.plasmid.game.manager.ManagedGameSpace;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Opens several instances of a map at once and measures the heap each retains, against the heap
+ * a fully loaded {@link MapTemplate} of the map retains. Heap is measured after a full collection.
+ */
+public class TemplateHeapCheck {
+    private static final int SETTLE_TICKS = 40;
+
+    private final MinecraftServer server;
+    private final Identifier configId;
+    private final int instances;
+    private final List<CompletableFuture<ManagedGameSpace>> opening = new ArrayList<>();
+    private int ticks = 0;
+    private long baseline;
+    private @Nullable String failure;
+    private boolean done = false;
+
+    public TemplateHeapCheck(MinecraftServer server, Identifier configId, int instances) {
+        this.server = server;
+        this.configId = configId;
+        this.instances = instances;
+    }
+
+    /**
+     * Advances the check by a tick
+     *
+     * @throws GameTestException until the check is done, or with the reason it failed
+     */
+    public void tick() {
+        if (failure != null) throw new GameTestException(failure);
+        if (done) return;
+        var config = GameConfigs.get(configId);
+        if (config == null || !(config.config() instanceof DeathRunConfig cfg)) throw new GameTestException("No deathrun game config " + configId);
+
+        if (ticks++ == 0) {
+            baseline = usedHeap();
+            for (int i = 0; i < instances; i++) opening.add(GameSpaceManager.get().open(config));
+        }
+        if (opening.stream().anyMatch(future -> !future.isDone())) {
+            ticks = 1;
+            throw new GameTestException("Opening " + instances + " games");
+        }
+        if (ticks < SETTLE_TICKS) throw new GameTestException("Waiting for the games to settle");
+
+        long opened = usedHeap();
+        var spaces = new ArrayList<ManagedGameSpace>();
+        for (var future : opening) {
+            if (future.isCompletedExceptionally()) {
+                failure = "A game failed to open";
+            } else {
+                spaces.add(future.join());
+            }
+        }
+        try {
+            var mapId = cfg.map().mapId();
+            var packed = SharedTemplates.load(server, mapId);
+            long fullTemplate = measureFullTemplate(mapId);
+
+            LoadScenario.write("template_heap", List.of(
+                    String.format("map: %s, instances open: %d", mapId, spaces.size()),
+                    String.format("heap per open instance, with its share of the template: %d KiB", (opened - baseline) / Math.max(1, spaces.size()) / 1024),
+                    String.format("shared template on heap: ~%d KiB, mapped off heap: %d KiB", packed.estimateHeapBytes() / 1024, packed.getMappedBytes() / 1024),
+                    String.format("fully loaded template on heap, as held before: %d KiB", fullTemplate / 1024)
+            ));
+        } catch (IOException e) {
+            failure = "Could not load the template: " + e;
+        }
+        spaces.forEach(space -> space.close(GameCloseReason.FINISHED));
+        done = true;
+        if (failure != null) throw new GameTestException(failure);
+    }
+
+    private long measureFullTemplate(Identifier mapId) throws IOException {
+        long before = usedHeap();
+        MapTemplate template = MapTemplateSerializer.loadFromResource(server, mapId);
+        long after = usedHeap();
+        // Kept reachable until measured
+        template.getBounds();
+        return after - before;
+    }
+
+    static long usedHeap() {
+        var memory = ManagementFactory.getMemoryMXBean();
+        // A second collection clears what finalization of the first released
+        memory.gc();
+        memory.gc();
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,15 @@
+package io.github.foundationgames.deathrun.test.mixin;
+
+import net.minecraft.server.network.ServerPlayNetworkHandler;
+import net.minecraft.util.math.Vec3d;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.gen.Accessor;
+
+@Mixin(ServerPlayNetworkHandler.class)
+public interface ServerPlayNetworkHandlerAccess {
+    @Accessor("requestedTeleportPos")
+    Vec3d deathrun$requestedTeleportPos();
+
+    @Accessor("requestedTeleportId")
+    int deathrun$requestedTeleportId();
+}
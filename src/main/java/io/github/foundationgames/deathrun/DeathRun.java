@@ -1,8 +1,12 @@
 package io.github.foundationgames.deathrun;
 
+import io.github.foundationgames.deathrun.command.DeathRunCommand;
 import io.github.foundationgames.deathrun.game.DeathRunConfig;
+import io.github.foundationgames.deathrun.game.map.PackedTemplate;
 import io.github.foundationgames.deathrun.game.state.DRWaiting;
 import net.fabricmc.api.ModInitializer;
+import net.fabricmc.fabric.api.command.v1.CommandRegistrationCallback;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerLifecycleEvents;
 import net.minecraft.util.Identifier;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -25,5 +29,7 @@ public class DeathRun implements ModInitializer {
 
     @Override
     public void onInitialize() {
+        CommandRegistrationCallback.EVENT.register(DeathRunCommand::register);
+        ServerLifecycleEvents.SERVER_STARTING.register(server -> PackedTemplate.deleteStale());
     }
 }
@@ -0,0 +1,189 @@
+package io.github.foundationgames.deathrun.command;
+
+import com.mojang.brigadier.CommandDispatcher;
+import com.mojang.brigadier.arguments.StringArgumentType;
+import com.mojang.brigadier.context.CommandContext;
+import com.mojang.brigadier.exceptions.CommandSyntaxException;
+import com.mojang.brigadier.exceptions.SimpleCommandExceptionType;
+import io.github.foundationgames.deathrun.game.map.ChunkPacketCache;
+import io.github.foundationgames.deathrun.game.map.DeathHeatmap;
+import io.github.foundationgames.deathrun.game.state.DRGame;
+import io.github.foundationgames.deathrun.game.state.logic.DRDeterminism;
+import io.github.foundationgames.deathrun.game.state.logic.DRRunnerLod;
+import net.minecraft.command.CommandSource;
+import net.minecraft.command.argument.IdentifierArgumentType;
+import net.minecraft.server.command.ServerCommandSource;
+import net.minecraft.text.LiteralText;
+import net.minecraft.util.Identifier;
+import net.minecraft.util.Util;
+import net.minecraft.util.math.ChunkPos;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+
+import static net.minecraft.server.command.CommandManager.argument;
+import static net.minecraft.server.command.CommandManager.literal;
+
+/**
+ * Admin commands for tuning maps and inspecting running games
+ */
+public class DeathRunCommand {
+    private static final SimpleCommandExceptionType NOT_IN_GAME = new SimpleCommandExceptionType(new LiteralText("You are not in a game of DeathRun"));
+
+    public static void register(CommandDispatcher<ServerCommandSource> dispatcher, boolean dedicated) {
+        dispatcher.register(literal("deathrun")
+                .requires(source -> source.hasPermissionLevel(2))
+                .then(literal("arena").executes(DeathRunCommand::describeArena))
+                .then(literal("chunkcache").executes(DeathRunCommand::describeChunkCache)
+                        .then(literal("clear").executes(DeathRunCommand::clearChunkCache))
+                )
+                .then(literal("lod").executes(DeathRunCommand::describeLod))
+                .then(literal("memory").executes(DeathRunCommand::describeMemory))
+                .then(literal("trace")
+                        .then(literal("compare")
+                                .then(argument("first", StringArgumentType.string())
+                                        .then(argument("second", StringArgumentType.string())
+                                                .executes(DeathRunCommand::compareTraces)
+                                        )
+                                )
+                        )
+                        .then(literal("replay")
+                                .then(argument("file", StringArgumentType.string())
+                                        .executes(DeathRunCommand::armReplay)
+                                )
+                        )
+                )
+                .then(literal("heatmap")
+                        .then(literal("show").executes(DeathRunCommand::toggleHeatmap))
+                        .then(literal("export")
+                                .executes(ctx -> exportHeatmap(ctx, null))
+                                .then(argument("map", IdentifierArgumentType.identifier())
+                                        .suggests((ctx, builder) -> CommandSource.suggestIdentifiers(DeathHeatmap.getLoadedMaps(), builder))
+                                        .executes(ctx -> exportHeatmap(ctx, IdentifierArgumentType.getIdentifier(ctx, "map")))
+                                )
+                        )
+                )
+        );
+    }
+
+    private static DRGame getGame(ServerCommandSource source) throws CommandSyntaxException {
+        var game = DRGame.get(source.getWorld());
+        if (game == null) throw NOT_IN_GAME.create();
+        return game;
+    }
+
+    private static int describeArena(CommandContext<ServerCommandSource> ctx) throws CommandSyntaxException {
+        var source = ctx.getSource();
+        var arena = getGame(source).arena;
+        if (!arena.isEnabled()) {
+            source.sendFeedback(new LiteralText("Arena simulation is off, all loaded chunks are simulated"), false);
+            return 0;
+        }
+        var active = arena.getActiveChunks();
+        int loaded = source.getWorld().getChunkManager().getLoadedChunkCount();
+        source.sendFeedback(new LiteralText(String.format("Simulating %d of %d loaded chunks", active.size(), loaded)), false);
+        long total = arena.getChunkTicks() + arena.getChunkTicksSkipped();
+        source.sendFeedback(new LiteralText(String.format("Chunk ticks skipped: %d of %d (%.1f%%)", arena.getChunkTicksSkipped(), total, total == 0 ? 0 : 100d * arena.getChunkTicksSkipped() / total)), false);
+        source.sendFeedback(new LiteralText(String.format("Scheduled ticks deferred: %d, block entity ticks skipped: %d", arena.getBlockTicksSkipped(), arena.getBlockEntityTicksSkipped())), false);
+        var chunks = new StringBuilder("Active chunks:");
+        active.forEach((long pos) -> chunks.append(' ').append(ChunkPos.getPackedX(pos)).append(',').append(ChunkPos.getPackedZ(pos)));
+        source.sendFeedback(new LiteralText(chunks.toString()), false);
+        return active.size();
+    }
+
+    private static int describeChunkCache(CommandContext<ServerCommandSource> ctx) {
+        long hits = ChunkPacketCache.getHits();
+        long total = hits + ChunkPacketCache.getMisses();
+        ctx.getSource().sendFeedback(new LiteralText(String.format("Chunk packets: %d cached chunks, %d of %d sends served from cache (%.1f%%)",
+                ChunkPacketCache.getCachedChunks(), hits, total, total == 0 ? 0 : 100d * hits / total)), false);
+        return (int) hits;
+    }
+
+    private static int clearChunkCache(CommandContext<ServerCommandSource> ctx) {
+        int cleared = ChunkPacketCache.clear();
+        ctx.getSource().sendFeedback(new LiteralText(String.format("Cleared %d cached chunk packets", cleared)), true);
+        return cleared;
+    }
+
+    private static int describeLod(CommandContext<ServerCommandSource> ctx) throws CommandSyntaxException {
+        var source = ctx.getSource();
+        var lod = getGame(source).lod;
+        source.sendFeedback(new LiteralText(String.format("Runner check level %d of %d at %.1f mspt, %d far runner checks skipped",
+                lod.getLevel(), DRRunnerLod.MAX_LEVEL, source.getServer().getTickTime(), lod.getSkipped())), false);
+        return lod.getLevel();
+    }
+
+    private static int describeMemory(CommandContext<ServerCommandSource> ctx) throws CommandSyntaxException {
+        var source = ctx.getSource();
+        var memory = getGame(source).estimateMemory();
+        long total = memory.values().stream().mapToLong(Long::longValue).sum();
+        source.sendFeedback(new LiteralText(String.format("Estimated retained memory: %d KiB", total / 1024)), false);
+        memory.forEach((name, bytes) -> source.sendFeedback(new LiteralText(String.format("  %s: %d KiB", name, bytes / 1024)), false));
+        return (int) (total / 1024);
+    }
+
+    private static int compareTraces(CommandContext<ServerCommandSource> ctx) {
+        var source = ctx.getSource();
+        var dir = DRDeterminism.getDirectory();
+        var first = dir.resolve(StringArgumentType.getString(ctx, "first"));
+        var second = dir.resolve(StringArgumentType.getString(ctx, "second"));
+        CompletableFuture.supplyAsync(() -> {
+            try {
+                return DRDeterminism.findDivergence(first, second);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }, Util.getIoWorkerExecutor()).whenCompleteAsync((divergence, error) -> {
+            if (error != null) {
+                source.sendError(new LiteralText("Failed to compare traces: " + error.getMessage()));
+            } else if (divergence == null) {
+                source.sendFeedback(new LiteralText("Traces are identical"), false);
+            } else {
+                source.sendFeedback(new LiteralText("Traces diverge at: " + divergence), false);
+            }
+        }, source.getServer());
+        return 1;
+    }
+
+    private static int armReplay(CommandContext<ServerCommandSource> ctx) {
+        var source = ctx.getSource();
+        var file = DRDeterminism.getDirectory().resolve(StringArgumentType.getString(ctx, "file"));
+        CompletableFuture.supplyAsync(() -> {
+            try {
+                return DRDeterminism.Replay.read(file);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }, Util.getIoWorkerExecutor()).whenCompleteAsync((replay, error) -> {
+            if (error != null) {
+                source.sendError(new LiteralText("Failed to read trace: " + error.getMessage()));
+            } else {
+                DRDeterminism.arm(replay);
+                source.sendFeedback(new LiteralText(String.format("The next game of %s with seed %d and %d players will replay the trace", replay.mapId, replay.seed, replay.players)), false);
+            }
+        }, source.getServer());
+        return 1;
+    }
+
+    private static int toggleHeatmap(CommandContext<ServerCommandSource> ctx) throws CommandSyntaxException {
+        var source = ctx.getSource();
+        boolean shown = getGame(source).heatmapOverlay.toggle(source.getPlayer());
+        source.sendFeedback(new LiteralText(shown ? "Showing death heatmap" : "Hiding death heatmap"), false);
+        return 1;
+    }
+
+    private static int exportHeatmap(CommandContext<ServerCommandSource> ctx, @Nullable Identifier mapId) throws CommandSyntaxException {
+        var source = ctx.getSource();
+        var server = source.getServer();
+        var heatmap = mapId != null ? DeathHeatmap.get(server, mapId) : getGame(source).heatmap;
+        heatmap.exportCsv(server).whenCompleteAsync((file, error) -> {
+            if (error != null) {
+                source.sendError(new LiteralText("Failed to export death heatmap: " + error.getMessage()));
+            } else {
+                source.sendFeedback(new LiteralText("Exported death heatmap for " + heatmap.mapId + " to " + file), false);
+            }
+        }, server);
+        return 1;
+    }
+}
@@ -5,12 +5,27 @@ import com.mojang.serialization.codecs.RecordCodecBuilder;
 import io.github.foundationgames.deathrun.game.map.DRMapConfig;
 import xyz.nucleoid.plasmid.game.common.config.PlayerConfig;
 
-public record DeathRunConfig(boolean runnersOnly, DRMapConfig map, PlayerConfig players) {
+import java.util.Optional;
+
+public record DeathRunConfig(boolean runnersOnly, DRMapConfig map, PlayerConfig players, RunnerVisibilityConfig runnerVisibility, boolean metrics, int parallelThreshold, TrapBudgetConfig trapBudget, double hologramDistance, boolean arenaSimulation, int startBatchSize, boolean standby, Optional<Long> seed, boolean snapshots, boolean eventLog, int lagCompensation, boolean adaptiveLod) {
     public static final Codec<DeathRunConfig> CODEC = RecordCodecBuilder.create(inst ->
             inst.group(
                     Codec.BOOL.fieldOf("runners_only").forGetter(DeathRunConfig::runnersOnly),
                     DRMapConfig.CODEC.fieldOf("map").forGetter(DeathRunConfig::map),
-                    PlayerConfig.CODEC.fieldOf("players").forGetter(DeathRunConfig::players)
+                    PlayerConfig.CODEC.fieldOf("players").forGetter(DeathRunConfig::players),
+                    RunnerVisibilityConfig.CODEC.optionalFieldOf("runner_visibility", RunnerVisibilityConfig.DEFAULT).forGetter(DeathRunConfig::runnerVisibility),
+                    Codec.BOOL.optionalFieldOf("metrics", false).forGetter(DeathRunConfig::metrics),
+                    Codec.INT.optionalFieldOf("parallel_threshold", 0).forGetter(DeathRunConfig::parallelThreshold),
+                    TrapBudgetConfig.CODEC.optionalFieldOf("trap_budget", TrapBudgetConfig.UNLIMITED).forGetter(DeathRunConfig::trapBudget),
+                    Codec.DOUBLE.optionalFieldOf("hologram_distance", 48d).forGetter(DeathRunConfig::hologramDistance),
+                    Codec.BOOL.optionalFieldOf("arena_simulation", false).forGetter(DeathRunConfig::arenaSimulation),
+                    Codec.INT.optionalFieldOf("start_batch_size", 8).forGetter(DeathRunConfig::startBatchSize),
+                    Codec.BOOL.optionalFieldOf("standby", false).forGetter(DeathRunConfig::standby),
+                    Codec.LONG.optionalFieldOf("seed").forGetter(DeathRunConfig::seed),
+                    Codec.BOOL.optionalFieldOf("snapshots", false).forGetter(DeathRunConfig::snapshots),
+                    Codec.BOOL.optionalFieldOf("event_log", false).forGetter(DeathRunConfig::eventLog),
+                    Codec.intRange(0, 1500).optionalFieldOf("lag_compensation", 0).forGetter(DeathRunConfig::lagCompensation),
+                    Codec.BOOL.optionalFieldOf("adaptive_lod", false).forGetter(DeathRunConfig::adaptiveLod)
             ).apply(inst, DeathRunConfig::new)
     );
 }
@@ -0,0 +1,34 @@
+package io.github.foundationgames.deathrun.game;
+
+import com.mojang.serialization.Codec;
+import com.mojang.serialization.codecs.RecordCodecBuilder;
+
+import java.util.Locale;
+
+public record RunnerVisibilityConfig(Mode mode, int nearest, double radius) {
+    public static final RunnerVisibilityConfig DEFAULT = new RunnerVisibilityConfig(Mode.ALL, 4, 16);
+
+    public static final Codec<RunnerVisibilityConfig> CODEC = RecordCodecBuilder.create(inst ->
+            inst.group(
+                    Mode.CODEC.optionalFieldOf("mode", Mode.ALL).forGetter(RunnerVisibilityConfig::mode),
+                    Codec.INT.optionalFieldOf("nearest", 4).forGetter(RunnerVisibilityConfig::nearest),
+                    Codec.DOUBLE.optionalFieldOf("radius", 16d).forGetter(RunnerVisibilityConfig::radius)
+            ).apply(inst, RunnerVisibilityConfig::new)
+    );
+
+    public enum Mode {
+        // Runners see every other runner (vanilla tracking)
+        ALL,
+        // Runners see no other runners
+        NONE,
+        // Runners only see the closest few other runners
+        NEAREST,
+        // Runners only see other runners within a radius
+        RADIUS;
+
+        public static final Codec<Mode> CODEC = Codec.STRING.xmap(
+                name -> Mode.valueOf(name.toUpperCase(Locale.ROOT)),
+                mode -> mode.name().toLowerCase(Locale.ROOT)
+        );
+    }
+}
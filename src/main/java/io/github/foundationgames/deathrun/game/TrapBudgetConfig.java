@@ -0,0 +1,22 @@
+package io.github.foundationgames.deathrun.game;
+
+import com.mojang.serialization.Codec;
+import com.mojang.serialization.codecs.RecordCodecBuilder;
+
+/**
+ * Per-tick limits for death trap block work, zero means unlimited
+ */
+public record TrapBudgetConfig(int maxBlocks, double maxMillis) {
+    public static final TrapBudgetConfig UNLIMITED = new TrapBudgetConfig(0, 0);
+
+    public static final Codec<TrapBudgetConfig> CODEC = RecordCodecBuilder.create(inst ->
+            inst.group(
+                    Codec.INT.optionalFieldOf("max_blocks", 0).forGetter(TrapBudgetConfig::maxBlocks),
+                    Codec.DOUBLE.optionalFieldOf("max_millis", 0d).forGetter(TrapBudgetConfig::maxMillis)
+            ).apply(inst, TrapBudgetConfig::new)
+    );
+
+    public boolean isUnlimited() {
+        return maxBlocks <= 0 && maxMillis <= 0;
+    }
+}
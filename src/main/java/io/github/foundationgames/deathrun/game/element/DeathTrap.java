@@ -2,11 +2,31 @@ package io.github.foundationgames.deathrun.game.element;
 
 import com.mojang.serialization.Codec;
 import io.github.foundationgames.deathrun.game.state.DRGame;
+import net.minecraft.entity.EntityType;
 import net.minecraft.server.world.ServerWorld;
+import net.minecraft.util.math.BlockPos;
 import xyz.nucleoid.map_templates.BlockBounds;
 
 public abstract class DeathTrap {
-    public abstract void trigger(DRGame game, ServerWorld world, BlockBounds zone);
+    /**
+     * Called once when the trap is triggered, before any of its blocks
+     */
+    public void trigger(DRGame game, ServerWorld world, BlockBounds zone) {
+    }
+
+    /**
+     * Called for every position in the trap's zone when the trap is triggered.
+     * These may be spread across several ticks, so each call must stand on its own.
+     */
+    public abstract void triggerBlock(DRGame game, ServerWorld world, BlockPos pos);
+
+    /**
+     * @return whether triggering this trap can spawn real entities of the given type,
+     * hazard rules for entity types no trap can spawn are skipped
+     */
+    public boolean canSpawn(EntityType<?> type) {
+        return false;
+    }
 
     public abstract Codec<? extends DeathTrap> getCodec();
 }
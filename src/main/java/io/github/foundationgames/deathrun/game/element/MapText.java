@@ -7,13 +7,15 @@ import net.minecraft.text.Text;
 import net.minecraft.util.math.Vec3d;
 
 import java.util.List;
+import java.util.Optional;
 
 public record MapText(Vec3d pos, TextData text) {
-    public record TextData(List<MutableText> lines) {
+    public record TextData(List<MutableText> lines, Optional<String> key) {
         public static final Codec<MutableText> JSON_TEXT_CODEC = Codec.STRING.xmap(Text.Serializer::fromJson, Text.Serializer::toJson);
 
         public static final Codec<TextData> CODEC = RecordCodecBuilder.create(instance -> instance.group(
-                Codec.list(JSON_TEXT_CODEC).fieldOf("lines").forGetter(TextData::lines)
+                Codec.list(JSON_TEXT_CODEC).fieldOf("lines").forGetter(TextData::lines),
+                Codec.STRING.optionalFieldOf("key").forGetter(TextData::key)
         ).apply(instance, TextData::new));
     }
 }
@@ -7,7 +7,6 @@ import io.github.foundationgames.deathrun.game.state.DRGame;
 import net.minecraft.block.BlockState;
 import net.minecraft.server.world.ServerWorld;
 import net.minecraft.util.math.BlockPos;
-import xyz.nucleoid.map_templates.BlockBounds;
 
 public class BlockReplaceDeathTrap extends ResettingDeathTrap {
     public static final Codec<BlockReplaceDeathTrap> CODEC = RecordCodecBuilder.create(instance ->
@@ -29,22 +28,10 @@ public class BlockReplaceDeathTrap extends ResettingDeathTrap {
     }
 
     @Override
-    public void trigger(DRGame game, ServerWorld world, BlockBounds zone) {
-        for (BlockPos pos : zone) {
-            var state = world.getBlockState(pos);
-            if (filterByState ? state == first : state.isOf(first.getBlock())) {
-                world.setBlockState(pos, second);
-            }
-        }
-    }
-
-    @Override
-    public void reset(DRGame game, ServerWorld world, BlockBounds zone) {
-        for (BlockPos pos : zone) {
-            var state = world.getBlockState(pos);
-            if (filterByState ? state == second : state.isOf(second.getBlock())) {
-                world.setBlockState(pos, first);
-            }
+    public void triggerBlock(DRGame game, ServerWorld world, BlockPos pos) {
+        var state = world.getBlockState(pos);
+        if (filterByState ? state == first : state.isOf(first.getBlock())) {
+            setBlock(game, world, pos, second);
         }
     }
 
@@ -6,18 +6,18 @@ import io.github.foundationgames.deathrun.game.element.DeathTrap;
 import io.github.foundationgames.deathrun.game.state.DRGame;
 import io.github.foundationgames.deathrun.game.state.logic.entity.ProjectileEntityBehavior;
 import net.minecraft.block.Blocks;
-import net.minecraft.entity.projectile.ArrowEntity;
+import net.minecraft.entity.EntityType;
 import net.minecraft.server.world.ServerWorld;
 import net.minecraft.state.property.Properties;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.Vec3d;
-import xyz.nucleoid.map_templates.BlockBounds;
 
 public class DispenserArrowDeathTrap extends DeathTrap {
     public static final Codec<DispenserArrowDeathTrap> CODEC = RecordCodecBuilder.create(instance ->
             instance.group(
                     Codec.FLOAT.optionalFieldOf("variation", 6f).forGetter(trap -> trap.variation),
-                    Codec.FLOAT.optionalFieldOf("force", 1.1f).forGetter(trap -> trap.force)
+                    Codec.FLOAT.optionalFieldOf("force", 1.1f).forGetter(trap -> trap.force),
+                    Codec.BOOL.optionalFieldOf("virtual", false).forGetter(trap -> trap.virtual)
             ).apply(instance, DispenserArrowDeathTrap::new)
     );
 
@@ -25,27 +25,41 @@ public class DispenserArrowDeathTrap extends DeathTrap {
 
     private final float variation;
     private final float force;
+    private final boolean virtual;
 
-    public DispenserArrowDeathTrap(float variation, float force) {
+    public DispenserArrowDeathTrap(float variation, float force, boolean virtual) {
         this.variation = variation;
         this.force = force;
+        this.virtual = virtual;
     }
 
     @Override
-    public void trigger(DRGame game, ServerWorld world, BlockBounds zone) {
-        for (BlockPos pos : zone) {
-            var state = world.getBlockState(pos);
-            if (state.isOf(Blocks.DISPENSER)) {
-                var facing = state.get(Properties.FACING);
-                var arrPos = Vec3d.ofCenter(pos.offset(facing));
-                var arrow = new ArrowEntity(world, arrPos.x, arrPos.y, arrPos.z);
+    public void triggerBlock(DRGame game, ServerWorld world, BlockPos pos) {
+        var state = world.getBlockState(pos);
+        if (state.isOf(Blocks.DISPENSER)) {
+            var facing = state.get(Properties.FACING);
+            var arrPos = Vec3d.ofCenter(pos.offset(facing));
+            world.syncWorldEvent(DISPENSER_EVENT_ID, pos.offset(facing), 0);
+            if (virtual) {
+                // Same spread as PersistentProjectileEntity#setVelocity
+                var random = game.determinism.random;
+                var vel = new Vec3d(facing.getOffsetX(), facing.getOffsetY() + 0.1, facing.getOffsetZ()).normalize()
+                        .add(random.nextGaussian() * 0.0075 * variation, random.nextGaussian() * 0.0075 * variation, random.nextGaussian() * 0.0075 * variation)
+                        .multiply(force);
+                game.projectiles.spawnArrow(arrPos, vel);
+            } else {
+                var arrow = game.entities.pool.arrow(arrPos.x, arrPos.y, arrPos.z);
                 arrow.setVelocity(facing.getOffsetX(), facing.getOffsetY() + 0.1, facing.getOffsetZ(), force, variation);
-                world.syncWorldEvent(DISPENSER_EVENT_ID, pos.offset(facing), 0);
                 game.spawn(arrow, new ProjectileEntityBehavior.Arrow());
             }
         }
     }
 
+    @Override
+    public boolean canSpawn(EntityType<?> type) {
+        return !virtual && type == EntityType.ARROW;
+    }
+
     @Override
     public Codec<? extends DeathTrap> getCodec() {
         return CODEC;
@@ -17,17 +17,19 @@ public class DripleafDeathTrap extends DeathTrap {
 
     @Override
     public void trigger(DRGame game, ServerWorld world, BlockBounds zone) {
-        for (BlockPos pos : zone) {
-            var state = world.getBlockState(pos);
-            if (state.isOf(Blocks.BIG_DRIPLEAF)) {
-                world.setBlockState(pos, state.with(Properties.TILT, Tilt.FULL));
-                world.getBlockTickScheduler().schedule(pos, state.getBlock(), 69);
-            }
-        }
         var center = zone.center();
         world.playSound(null, center.x, center.y, center.z, SoundEvents.BLOCK_BIG_DRIPLEAF_FALL, SoundCategory.BLOCKS, 2.0f, 1.0f);
     }
 
+    @Override
+    public void triggerBlock(DRGame game, ServerWorld world, BlockPos pos) {
+        var state = world.getBlockState(pos);
+        if (state.isOf(Blocks.BIG_DRIPLEAF)) {
+            world.setBlockState(pos, state.with(Properties.TILT, Tilt.FULL));
+            world.getBlockTickScheduler().schedule(pos, state.getBlock(), 69);
+        }
+    }
+
     @Override
     public Codec<? extends DeathTrap> getCodec() {
         return CODEC;
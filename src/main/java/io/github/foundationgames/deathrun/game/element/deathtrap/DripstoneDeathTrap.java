@@ -7,18 +7,19 @@ import io.github.foundationgames.deathrun.game.state.DRGame;
 import net.minecraft.block.BlockState;
 import net.minecraft.block.Blocks;
 import net.minecraft.block.enums.Thickness;
+import net.minecraft.entity.EntityType;
 import net.minecraft.entity.FallingBlockEntity;
 import net.minecraft.server.world.ServerWorld;
 import net.minecraft.state.property.Properties;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.Direction;
 import net.minecraft.util.math.Vec3d;
-import xyz.nucleoid.map_templates.BlockBounds;
 
 public class DripstoneDeathTrap extends DeathTrap {
     public static final Codec<DripstoneDeathTrap> CODEC = RecordCodecBuilder.create(instance ->
             instance.group(
-                    Codec.INT.optionalFieldOf("length", 2).forGetter(trap -> trap.length)
+                    Codec.INT.optionalFieldOf("length", 2).forGetter(trap -> trap.length),
+                    Codec.BOOL.optionalFieldOf("virtual", false).forGetter(trap -> trap.virtual)
             ).apply(instance, DripstoneDeathTrap::new)
     );
 
@@ -29,25 +30,34 @@ public class DripstoneDeathTrap extends DeathTrap {
     };
 
     private final int length;
+    private final boolean virtual;
+    private final BlockState[] columnStates;
 
-    public DripstoneDeathTrap(int length) {
+    public DripstoneDeathTrap(int length, boolean virtual) {
         this.length = length;
+        this.virtual = virtual;
+        this.columnStates = new BlockState[length];
+        for (int i = 0; i < length; i++) {
+            columnStates[i] = dripstoneStates[Math.min(i, dripstoneStates.length - 1)];
+        }
     }
 
     @Override
-    public void trigger(DRGame game, ServerWorld world, BlockBounds zone) {
-        for (BlockPos pos : zone) {
-            var state = world.getBlockState(pos);
-            if (state.isOf(Blocks.DRIPSTONE_BLOCK)) {
-                var dripstonePos = Vec3d.ofBottomCenter(pos.down().down(length - 1));
-                float off = world.random.nextFloat();
-                for (int i = 0; i < length; i++) {
-                    var dState = dripstoneStates[Math.min(i, dripstoneStates.length - 1)];
-                    var dripstone = new FallingBlockEntity(world, dripstonePos.x, dripstonePos.y + i - off, dripstonePos.z, dState);
-                    dripstone.timeFalling = 1;
-                    dripstone.dropItem = false;
-                    world.spawnEntity(dripstone);
-                }
+    public void triggerBlock(DRGame game, ServerWorld world, BlockPos pos) {
+        var state = world.getBlockState(pos);
+        if (state.isOf(Blocks.DRIPSTONE_BLOCK)) {
+            var dripstonePos = Vec3d.ofBottomCenter(pos.down().down(length - 1));
+            float off = game.determinism.random.nextFloat();
+            if (virtual) {
+                game.hazards.spawnFallingColumn(dripstonePos.add(0, -off, 0), columnStates);
+                return;
+            }
+            for (int i = 0; i < length; i++) {
+                var dState = columnStates[i];
+                var dripstone = new FallingBlockEntity(world, dripstonePos.x, dripstonePos.y + i - off, dripstonePos.z, dState);
+                dripstone.timeFalling = 1;
+                dripstone.dropItem = false;
+                world.spawnEntity(dripstone);
             }
         }
     }
@@ -58,6 +68,11 @@ public class DripstoneDeathTrap extends DeathTrap {
                 .with(Properties.THICKNESS, thickness);
     }
 
+    @Override
+    public boolean canSpawn(EntityType<?> type) {
+        return !virtual && type == EntityType.FALLING_BLOCK;
+    }
+
     @Override
     public Codec<? extends DeathTrap> getCodec() {
         return CODEC;
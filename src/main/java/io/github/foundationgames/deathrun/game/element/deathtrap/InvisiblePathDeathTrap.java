@@ -8,7 +8,6 @@ import net.minecraft.block.BlockState;
 import net.minecraft.block.Blocks;
 import net.minecraft.server.world.ServerWorld;
 import net.minecraft.util.math.BlockPos;
-import xyz.nucleoid.map_templates.BlockBounds;
 
 public class InvisiblePathDeathTrap extends ResettingDeathTrap {
     public static final Codec<InvisiblePathDeathTrap> CODEC = RecordCodecBuilder.create(instance ->
@@ -27,22 +26,11 @@ public class InvisiblePathDeathTrap extends ResettingDeathTrap {
     }
 
     @Override
-    public void trigger(DRGame game, ServerWorld world, BlockBounds zone) {
-        for (BlockPos pos : zone) {
-            var state = world.getBlockState(pos);
-            if (state.isOf(Blocks.BARRIER)) {
-                world.setBlockState(pos.down(down), Blocks.WATER.getDefaultState());
-            }
-        }
-    }
-
-    @Override
-    public void reset(DRGame game, ServerWorld world, BlockBounds zone) {
-        for (BlockPos pos : zone) {
-            var state = world.getBlockState(pos);
-            if (state.isOf(Blocks.BARRIER)) {
-                world.setBlockState(pos.down(down), this.state);
-            }
+    public void triggerBlock(DRGame game, ServerWorld world, BlockPos pos) {
+        var state = world.getBlockState(pos);
+        if (state.isOf(Blocks.BARRIER)) {
+            // The path comes back as the configured block, whatever was there before
+            setBlock(game, world, pos.down(down), Blocks.WATER.getDefaultState(), this.state);
         }
     }
 
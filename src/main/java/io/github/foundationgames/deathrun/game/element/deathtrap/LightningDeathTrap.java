@@ -1,6 +1,7 @@
 package io.github.foundationgames.deathrun.game.element.deathtrap;
 
 import com.mojang.serialization.Codec;
+import com.mojang.serialization.codecs.RecordCodecBuilder;
 import io.github.foundationgames.deathrun.game.element.DeathTrap;
 import io.github.foundationgames.deathrun.game.state.DRGame;
 import net.minecraft.block.Blocks;
@@ -8,23 +9,39 @@ import net.minecraft.entity.EntityType;
 import net.minecraft.server.world.ServerWorld;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.Vec3d;
-import xyz.nucleoid.map_templates.BlockBounds;
 
 public class LightningDeathTrap extends DeathTrap {
-    public static final Codec<LightningDeathTrap> CODEC = Codec.unit(LightningDeathTrap::new);
+    public static final Codec<LightningDeathTrap> CODEC = RecordCodecBuilder.create(instance ->
+            instance.group(
+                    Codec.BOOL.optionalFieldOf("virtual", false).forGetter(trap -> trap.virtual)
+            ).apply(instance, LightningDeathTrap::new)
+    );
+
+    private final boolean virtual;
+
+    public LightningDeathTrap(boolean virtual) {
+        this.virtual = virtual;
+    }
 
     @Override
-    public void trigger(DRGame game, ServerWorld world, BlockBounds zone) {
-        for (BlockPos pos : zone) {
-            var state = world.getBlockState(pos);
-            if (state.isOf(Blocks.LIGHTNING_ROD)) {
-                var lightning = EntityType.LIGHTNING_BOLT.create(world);
-                lightning.refreshPositionAfterTeleport(Vec3d.ofBottomCenter(pos.up()));
-                world.spawnEntity(lightning);
+    public void triggerBlock(DRGame game, ServerWorld world, BlockPos pos) {
+        var state = world.getBlockState(pos);
+        if (state.isOf(Blocks.LIGHTNING_ROD)) {
+            if (virtual) {
+                game.hazards.spawnLightning(Vec3d.ofBottomCenter(pos.up()));
+                return;
             }
+            var lightning = EntityType.LIGHTNING_BOLT.create(world);
+            lightning.refreshPositionAfterTeleport(Vec3d.ofBottomCenter(pos.up()));
+            world.spawnEntity(lightning);
         }
     }
 
+    @Override
+    public boolean canSpawn(EntityType<?> type) {
+        return !virtual && type == EntityType.LIGHTNING_BOLT;
+    }
+
     @Override
     public Codec<? extends DeathTrap> getCodec() {
         return CODEC;
@@ -17,25 +17,21 @@ public class PowderedSnowDeathTrap extends ResettingDeathTrap {
 
     @Override
     public void trigger(DRGame game, ServerWorld world, BlockBounds zone) {
-        for (BlockPos pos : zone) {
-            var state = world.getBlockState(pos);
-            if (state.isOf(Blocks.SNOW_BLOCK)) {
-                world.setBlockState(pos, Blocks.POWDER_SNOW.getDefaultState());
-                world.getPlayers().forEach(p -> p.networkHandler.sendPacket(new ParticleS2CPacket(ParticleTypes.CLOUD, false, pos.getX() + 0.5, pos.getY() + 1, pos.getZ() + 0.5, 0, 0, 0, 0, 1)));
-            }
-        }
         var center = zone.center();
         world.playSound(null, center.x, center.y, center.z, SoundEvents.BLOCK_SNOW_BREAK, SoundCategory.BLOCKS, 2.0f, 1.0f);
     }
 
     @Override
-    public void reset(DRGame game, ServerWorld world, BlockBounds zone) {
-        for (BlockPos pos : zone) {
-            var state = world.getBlockState(pos);
-            if (state.isOf(Blocks.POWDER_SNOW)) {
-                world.setBlockState(pos, Blocks.SNOW_BLOCK.getDefaultState());
-            }
+    public void triggerBlock(DRGame game, ServerWorld world, BlockPos pos) {
+        var state = world.getBlockState(pos);
+        if (state.isOf(Blocks.SNOW_BLOCK)) {
+            setBlock(game, world, pos, Blocks.POWDER_SNOW.getDefaultState());
+            world.getPlayers().forEach(p -> p.networkHandler.sendPacket(new ParticleS2CPacket(ParticleTypes.CLOUD, false, pos.getX() + 0.5, pos.getY() + 1, pos.getZ() + 0.5, 0, 0, 0, 0, 1)));
         }
+    }
+
+    @Override
+    public void reset(DRGame game, ServerWorld world, BlockBounds zone) {
         var center = zone.center();
         world.playSound(null, center.x, center.y, center.z, SoundEvents.BLOCK_SNOW_BREAK, SoundCategory.BLOCKS, 2.0f, 1.0f);
     }
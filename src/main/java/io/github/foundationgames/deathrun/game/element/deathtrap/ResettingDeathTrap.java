@@ -2,9 +2,34 @@ package io.github.foundationgames.deathrun.game.element.deathtrap;
 
 import io.github.foundationgames.deathrun.game.element.DeathTrap;
 import io.github.foundationgames.deathrun.game.state.DRGame;
+import net.minecraft.block.BlockState;
 import net.minecraft.server.world.ServerWorld;
+import net.minecraft.util.math.BlockPos;
 import xyz.nucleoid.map_templates.BlockBounds;
 
+/**
+ * A trap that is undone after its cooldown. Blocks changed through {@link #setBlock} while the
+ * trap is triggered are recorded, and resetting restores exactly those blocks.
+ */
 public abstract class ResettingDeathTrap extends DeathTrap {
-    public abstract void reset(DRGame game, ServerWorld world, BlockBounds zone);
+    /**
+     * Called once when the trap is reset, before any of its blocks are restored
+     */
+    public void reset(DRGame game, ServerWorld world, BlockBounds zone) {
+    }
+
+    /**
+     * Changes a block when triggered, recording its previous state to be restored on reset
+     */
+    protected void setBlock(DRGame game, ServerWorld world, BlockPos pos, BlockState state) {
+        setBlock(game, world, pos, state, world.getBlockState(pos));
+    }
+
+    /**
+     * Changes a block when triggered, to be set to the given state on reset instead of its previous state
+     */
+    protected void setBlock(DRGame game, ServerWorld world, BlockPos pos, BlockState state, BlockState resetState) {
+        game.traps.record(pos, resetState);
+        world.setBlockState(pos, state);
+    }
 }
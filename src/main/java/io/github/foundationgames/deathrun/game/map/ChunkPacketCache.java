@@ -0,0 +1,127 @@
+package io.github.foundationgames.deathrun.game.map;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import net.minecraft.network.packet.s2c.play.ChunkDataS2CPacket;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.util.Identifier;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.chunk.WorldChunk;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+/**
+ * Shares chunk data packets between every world generated from the same map template. Fresh
+ * chunks of a template are identical, so the packet for a chunk is built once per map id,
+ * template load and chunk position, and reused for every player and every game. Chunks
+ * with changed blocks are built live for that world. Packets of a map no open world uses are
+ * kept for a few minutes, for the next game of the map. Only touched on the server thread.
+ */
+public class ChunkPacketCache {
+    private static final long IDLE_MILLIS = 5 * 60 * 1000; // 5 minutes
+
+    private static final Map<ServerWorld, ChunkPacketCache> WORLDS = new HashMap<>();
+    private static final Map<Key, Long2ObjectOpenHashMap<ChunkDataS2CPacket>> PACKETS = new HashMap<>();
+    // When the last world using a map's packets was unregistered
+    private static final Map<Key, Long> IDLE_SINCE = new HashMap<>();
+
+    private static long hits = 0;
+    private static long misses = 0;
+
+    private final Key key;
+    private final LongSet dirty = new LongOpenHashSet();
+
+    private ChunkPacketCache(Key key) {
+        this.key = key;
+    }
+
+    public static void register(ServerWorld world, DeathRunMap map) {
+        var key = new Key(map.mapId, map.templateVersion);
+        WORLDS.put(world, new ChunkPacketCache(key));
+        IDLE_SINCE.remove(key);
+        prune();
+    }
+
+    /**
+     * Stops serving the world from the cache, must be called when its game closes
+     */
+    public static void unregister(ServerWorld world) {
+        var cache = WORLDS.remove(world);
+        if (cache == null) return;
+        if (WORLDS.values().stream().noneMatch(other -> other.key.equals(cache.key))) {
+            IDLE_SINCE.put(cache.key, System.currentTimeMillis());
+        }
+        prune();
+    }
+
+    // Drops packets of maps no open world has used for a while
+    private static void prune() {
+        long cutoff = System.currentTimeMillis() - IDLE_MILLIS;
+        var used = new HashSet<Key>();
+        for (var cache : WORLDS.values()) used.add(cache.key);
+        IDLE_SINCE.forEach((key, since) -> {
+            if (since >= cutoff) used.add(key);
+        });
+        PACKETS.keySet().retainAll(used);
+        IDLE_SINCE.keySet().retainAll(used);
+    }
+
+    /**
+     * Drops every cached packet, open worlds fill the cache again as their chunks are sent
+     *
+     * @return the number of packets dropped
+     */
+    public static int clear() {
+        int cleared = getCachedChunks();
+        PACKETS.clear();
+        IDLE_SINCE.clear();
+        return cleared;
+    }
+
+    public static @Nullable ChunkPacketCache get(ServerWorld world) {
+        return WORLDS.get(world);
+    }
+
+    public static long getHits() {
+        return hits;
+    }
+
+    public static long getMisses() {
+        return misses;
+    }
+
+    public static int getCachedChunks() {
+        int count = 0;
+        for (var packets : PACKETS.values()) count += packets.size();
+        return count;
+    }
+
+    public void markDirty(BlockPos pos) {
+        dirty.add(ChunkPos.toLong(pos.getX() >> 4, pos.getZ() >> 4));
+    }
+
+    public ChunkDataS2CPacket getPacket(WorldChunk chunk) {
+        long pos = chunk.getPos().toLong();
+        if (dirty.contains(pos)) {
+            misses++;
+            return new ChunkDataS2CPacket(chunk);
+        }
+        var packets = PACKETS.computeIfAbsent(key, k -> new Long2ObjectOpenHashMap<>());
+        var packet = packets.get(pos);
+        if (packet == null) {
+            misses++;
+            packet = new ChunkDataS2CPacket(chunk);
+            packets.put(pos, packet);
+        } else {
+            hits++;
+        }
+        return packet;
+    }
+
+    private record Key(Identifier mapId, long templateVersion) {}
+}
@@ -0,0 +1,233 @@
+package io.github.foundationgames.deathrun.game.map;
+
+import io.github.foundationgames.deathrun.DeathRun;
+import io.github.foundationgames.deathrun.game.state.DeathCause;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.fabricmc.loader.api.FabricLoader;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.util.Identifier;
+import net.minecraft.util.Util;
+import net.minecraft.util.math.BlockPos;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.LongConsumer;
+
+/**
+ * Runner death counts for one map, aggregated across games and kept for the lifetime of the
+ * server. Each block position holds a counter per {@link DeathCause} and the summed run time
+ * of the deaths there, and deaths attributed to a trap are counted by the trap's button.
+ * Only touched on the server thread, the file is read and written on the IO worker.
+ */
+public class DeathHeatmap {
+    public static final long NO_TRAP = Long.MAX_VALUE;
+
+    private static final int MAGIC = 0x44524844;
+    private static final int VERSION = 1;
+    private static final Map<Identifier, DeathHeatmap> HEATMAPS = new HashMap<>();
+
+    public final Identifier mapId;
+    private final Long2ObjectOpenHashMap<int[]> cells = new Long2ObjectOpenHashMap<>();
+    private final Long2LongOpenHashMap times = new Long2LongOpenHashMap();
+    private final Long2IntOpenHashMap traps = new Long2IntOpenHashMap();
+    private final CompletableFuture<Void> loaded;
+    private int maxCount = 0;
+
+    private DeathHeatmap(MinecraftServer server, Identifier mapId) {
+        this.mapId = mapId;
+        var file = getFile(mapId, "bin");
+        this.loaded = CompletableFuture.supplyAsync(() -> read(file), Util.getIoWorkerExecutor())
+                .thenAcceptAsync(this::merge, server);
+    }
+
+    /**
+     * Gets the heatmap for a map, loading its saved counts in the background on first use
+     */
+    public static DeathHeatmap get(MinecraftServer server, Identifier mapId) {
+        return HEATMAPS.computeIfAbsent(mapId, id -> new DeathHeatmap(server, id));
+    }
+
+    public static Iterable<Identifier> getLoadedMaps() {
+        return HEATMAPS.keySet();
+    }
+
+    public void record(long pos, DeathCause cause, long trap, int time) {
+        int[] counts = cells.get(pos);
+        if (counts == null) {
+            counts = new int[DeathCause.VALUES.length];
+            cells.put(pos, counts);
+        }
+        counts[cause.ordinal()]++;
+        times.addTo(pos, time);
+        if (trap != NO_TRAP) traps.addTo(trap, 1);
+        maxCount = Math.max(maxCount, total(counts));
+    }
+
+    public int getCount(long pos) {
+        int[] counts = cells.get(pos);
+        return counts == null ? 0 : total(counts);
+    }
+
+    public long estimateBytes() {
+        // Counts array, summed time and hash map slots per cell, plus trap counters
+        return cells.size() * (16 + DeathCause.VALUES.length * 4L + 8 + 8 + 16) + traps.size() * 12L;
+    }
+
+    public int getMaxCount() {
+        return maxCount;
+    }
+
+    public void forEachCell(LongConsumer action) {
+        cells.keySet().forEach(action);
+    }
+
+    /**
+     * Writes the counts to the map's binary file in the background, once any saved counts
+     * have been loaded so they are not overwritten
+     */
+    public void save() {
+        loaded.thenRun(this::writeBinary);
+    }
+
+    private void writeBinary() {
+        var bytes = new ByteArrayOutputStream();
+        try (var out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(DeathCause.VALUES.length);
+            out.writeInt(cells.size());
+            for (var entry : cells.long2ObjectEntrySet()) {
+                out.writeLong(entry.getLongKey());
+                for (int count : entry.getValue()) out.writeInt(count);
+                out.writeLong(times.get(entry.getLongKey()));
+            }
+            out.writeInt(traps.size());
+            for (var entry : traps.long2IntEntrySet()) {
+                out.writeLong(entry.getLongKey());
+                out.writeInt(entry.getIntValue());
+            }
+        } catch (IOException e) {
+            DeathRun.LOG.error("Failed to serialize death heatmap for {}", mapId, e);
+            return;
+        }
+        write(getFile(mapId, "bin"), bytes.toByteArray());
+    }
+
+    /**
+     * Writes the counts as CSV in the background, once any saved counts have been loaded
+     *
+     * @return the future for the exported file
+     */
+    public CompletableFuture<Path> exportCsv(MinecraftServer server) {
+        var file = getFile(mapId, "csv");
+        return loaded.thenApplyAsync(v -> {
+            var lines = new ArrayList<String>();
+            var header = new StringBuilder("x,y,z,deaths");
+            for (var cause : DeathCause.VALUES) header.append(',').append(cause.getName());
+            lines.add(header.append(",avg_time_s").toString());
+            for (var entry : cells.long2ObjectEntrySet()) {
+                long pos = entry.getLongKey();
+                int[] counts = entry.getValue();
+                int total = total(counts);
+                var line = new StringBuilder();
+                line.append(BlockPos.unpackLongX(pos)).append(',').append(BlockPos.unpackLongY(pos)).append(',').append(BlockPos.unpackLongZ(pos)).append(',').append(total);
+                for (int count : counts) line.append(',').append(count);
+                lines.add(line.append(',').append(String.format("%.2f", times.get(pos) / 20d / total)).toString());
+            }
+            lines.add("");
+            lines.add("trap_x,trap_y,trap_z,deaths");
+            for (var entry : traps.long2IntEntrySet()) {
+                long pos = entry.getLongKey();
+                lines.add(BlockPos.unpackLongX(pos) + "," + BlockPos.unpackLongY(pos) + "," + BlockPos.unpackLongZ(pos) + "," + entry.getIntValue());
+            }
+            return lines;
+        }, server).thenApplyAsync(lines -> {
+            try {
+                Files.createDirectories(file.getParent());
+                Files.write(file, lines);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+            return file;
+        }, Util.getIoWorkerExecutor());
+    }
+
+    private void merge(List<Saved> saved) {
+        for (var cell : saved) {
+            if (cell.counts == null) {
+                traps.addTo(cell.pos, (int) cell.time);
+                continue;
+            }
+            int[] counts = cells.get(cell.pos);
+            if (counts == null) {
+                counts = new int[DeathCause.VALUES.length];
+                cells.put(cell.pos, counts);
+            }
+            for (int i = 0; i < counts.length && i < cell.counts.length; i++) counts[i] += cell.counts[i];
+            times.addTo(cell.pos, cell.time);
+            maxCount = Math.max(maxCount, total(counts));
+        }
+    }
+
+    private static List<Saved> read(Path file) {
+        var saved = new ArrayList<Saved>();
+        if (!Files.exists(file)) return saved;
+        try (var in = new DataInputStream(Files.newInputStream(file))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                DeathRun.LOG.warn("Ignoring unrecognized death heatmap file {}", file);
+                return saved;
+            }
+            int causes = in.readInt();
+            int cellCount = in.readInt();
+            for (int i = 0; i < cellCount; i++) {
+                long pos = in.readLong();
+                int[] counts = new int[causes];
+                for (int c = 0; c < causes; c++) counts[c] = in.readInt();
+                saved.add(new Saved(pos, counts, in.readLong()));
+            }
+            int trapCount = in.readInt();
+            for (int i = 0; i < trapCount; i++) {
+                saved.add(new Saved(in.readLong(), null, in.readInt()));
+            }
+        } catch (IOException e) {
+            DeathRun.LOG.error("Failed to read death heatmap {}", file, e);
+        }
+        return saved;
+    }
+
+    private static void write(Path file, byte[] bytes) {
+        Util.getIoWorkerExecutor().execute(() -> {
+            try {
+                Files.createDirectories(file.getParent());
+                Files.write(file, bytes);
+            } catch (IOException e) {
+                DeathRun.LOG.error("Failed to write death heatmap {}", file, e);
+            }
+        });
+    }
+
+    private static Path getFile(Identifier mapId, String extension) {
+        return FabricLoader.getInstance().getGameDir().resolve(DeathRun.MOD_ID).resolve("heatmaps")
+                .resolve(mapId.getNamespace() + "_" + mapId.getPath() + "." + extension);
+    }
+
+    private static int total(int[] counts) {
+        int total = 0;
+        for (int count : counts) total += count;
+        return total;
+    }
+
+    // A saved cell, or a trap count when counts is null
+    private record Saved(long pos, int[] counts, long time) {}
+}
@@ -4,24 +4,19 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.mojang.datafixers.util.Pair;
 import com.mojang.serialization.DataResult;
-import eu.pb4.holograms.api.Holograms;
 import io.github.foundationgames.deathrun.game.element.CheckpointZone;
 import io.github.foundationgames.deathrun.game.element.DeathTrapZone;
 import io.github.foundationgames.deathrun.game.element.EffectZone;
 import io.github.foundationgames.deathrun.game.element.MapText;
 import net.minecraft.nbt.NbtOps;
 import net.minecraft.server.MinecraftServer;
-import net.minecraft.server.world.ServerWorld;
 import net.minecraft.text.LiteralText;
+import net.minecraft.util.Identifier;
 import net.minecraft.util.math.BlockPos;
-import net.minecraft.util.math.Vec3d;
 import net.minecraft.world.gen.chunk.ChunkGenerator;
 import xyz.nucleoid.map_templates.BlockBounds;
-import xyz.nucleoid.map_templates.MapTemplate;
-import xyz.nucleoid.map_templates.MapTemplateSerializer;
 import xyz.nucleoid.map_templates.TemplateRegion;
 import xyz.nucleoid.plasmid.game.GameOpenException;
-import xyz.nucleoid.plasmid.game.world.generator.TemplateChunkGenerator;
 
 import java.io.IOException;
 import java.util.List;
@@ -29,7 +24,10 @@ import java.util.Map;
 import java.util.stream.Collectors;
 
 public class DeathRunMap {
-    public final MapTemplate template;
+    public final Identifier mapId;
+    public final long templateVersion;
+    public final BlockBounds templateBounds;
+    private final PackedTemplate template;
     public final Map<BlockPos, DeathTrapZone> trapZones;
     public final List<CheckpointZone> checkpoints;
     public final List<EffectZone> effectZones;
@@ -39,10 +37,14 @@ public class DeathRunMap {
     public final BlockBounds deathStart;
     public final BlockBounds gate;
     public final BlockBounds finish;
+    public final MapHazards hazards;
     public final int time;
 
-    public DeathRunMap(MapTemplate template, Map<BlockPos, DeathTrapZone> deathTraps, List<CheckpointZone> checkpoints, List<EffectZone> effectZones, List<MapText> mapTexts, BlockBounds spawn, BlockBounds runnerStart, BlockBounds deathStart, BlockBounds gate, BlockBounds finish, int time) {
+    public DeathRunMap(Identifier mapId, PackedTemplate template, Map<BlockPos, DeathTrapZone> deathTraps, List<CheckpointZone> checkpoints, List<EffectZone> effectZones, List<MapText> mapTexts, BlockBounds spawn, BlockBounds runnerStart, BlockBounds deathStart, BlockBounds gate, BlockBounds finish, MapHazards hazards, int time) {
+        this.mapId = mapId;
+        this.templateVersion = template.version;
         this.template = template;
+        this.templateBounds = template.bounds;
         this.trapZones = deathTraps;
         this.checkpoints = checkpoints;
         this.effectZones = effectZones;
@@ -52,19 +54,20 @@ public class DeathRunMap {
         this.deathStart = deathStart;
         this.gate = gate;
         this.finish = finish;
+        this.hazards = hazards;
         this.time = time;
     }
 
     public static DeathRunMap create(MinecraftServer server, DRMapConfig cfg) throws GameOpenException {
-        MapTemplate template;
+        PackedTemplate template;
         try {
-            template = MapTemplateSerializer.loadFromResource(server, cfg.mapId());
+            template = SharedTemplates.load(server, cfg.mapId());
         } catch (IOException e) {
             throw new GameOpenException(new LiteralText(String.format("Map %s was not found", cfg.mapId())));
         }
 
         var deathTraps = ImmutableMap.<BlockPos, DeathTrapZone>builder();
-        for (TemplateRegion reg : template.getMetadata().getRegions("death_trap").collect(Collectors.toList())) {
+        for (TemplateRegion reg : template.metadata.getRegions("death_trap").collect(Collectors.toList())) {
             DataResult<DeathTrapZone> result = DeathTrapZone.CODEC.decode(NbtOps.INSTANCE, reg.getData()).map(Pair::getFirst);
 
             result.result().ifPresent(deathTrapZone -> {
@@ -77,7 +80,7 @@ public class DeathRunMap {
         }
 
         var effectZones = ImmutableList.<EffectZone>builder();
-        for (TemplateRegion reg : template.getMetadata().getRegions("effect_zone").collect(Collectors.toList())) {
+        for (TemplateRegion reg : template.metadata.getRegions("effect_zone").collect(Collectors.toList())) {
             DataResult<EffectZone.Effect> result = EffectZone.Effect.CODEC.decode(NbtOps.INSTANCE, reg.getData()).map(Pair::getFirst);
 
             result.result().ifPresent(effect -> effectZones.add(new EffectZone(reg.getBounds(), effect)));
@@ -87,7 +90,7 @@ public class DeathRunMap {
         }
 
         var mapTexts = ImmutableList.<MapText>builder();
-        for (TemplateRegion reg : template.getMetadata().getRegions("text").collect(Collectors.toList())) {
+        for (TemplateRegion reg : template.metadata.getRegions("text").collect(Collectors.toList())) {
             DataResult<MapText.TextData> result = MapText.TextData.CODEC.decode(NbtOps.INSTANCE, reg.getData()).map(Pair::getFirst);
 
             result.result().ifPresent(textData -> mapTexts.add(new MapText(reg.getBounds().center(), textData)));
@@ -97,18 +100,18 @@ public class DeathRunMap {
         }
 
         var checkpoints = ImmutableList.<CheckpointZone>builder();
-        template.getMetadata().getRegions("checkpoint").forEach(reg -> {
+        template.metadata.getRegions("checkpoint").forEach(reg -> {
             var bounds = reg.getBounds();
             float yaw = 0;
             if (reg.getData().contains("yaw")) yaw = reg.getData().getFloat("yaw");
             checkpoints.add(new CheckpointZone(bounds, yaw));
         });
 
-        var spawn = template.getMetadata().getFirstRegionBounds("spawn");
-        var runnerStart = template.getMetadata().getFirstRegionBounds("runner_start");
-        var deathStart = template.getMetadata().getFirstRegionBounds("death_start");
-        var gate = template.getMetadata().getFirstRegionBounds("gate");
-        var finish = template.getMetadata().getFirstRegionBounds("finish");
+        var spawn = template.metadata.getFirstRegionBounds("spawn");
+        var runnerStart = template.metadata.getFirstRegionBounds("runner_start");
+        var deathStart = template.metadata.getFirstRegionBounds("death_start");
+        var gate = template.metadata.getFirstRegionBounds("gate");
+        var finish = template.metadata.getFirstRegionBounds("finish");
 
         if (spawn == null) throw new GameOpenException(new LiteralText("Missing spawn region!"));
         if (runnerStart == null) throw new GameOpenException(new LiteralText("Missing runner_start region!"));
@@ -123,21 +126,60 @@ public class DeathRunMap {
             throw new GameOpenException(new LiteralText("Two death zones may not share the same button"));
         }
 
-        return new DeathRunMap(template, builtDeathTraps, checkpoints.build(), effectZones.build(), mapTexts.build(), spawn, runnerStart, deathStart, gate, finish, cfg.time());
+        var rules = HazardRules.DEFAULT;
+        var rulesRegion = template.metadata.getFirstRegion("hazards");
+        if (rulesRegion != null) {
+            DataResult<HazardRules> result = HazardRules.CODEC.decode(NbtOps.INSTANCE, rulesRegion.getData()).map(Pair::getFirst);
+
+            result.error().ifPresent(ex -> {
+                throw new GameOpenException(new LiteralText("Failed to decode 'hazards' region data: " + ex));
+            });
+            rules = result.result().orElse(HazardRules.DEFAULT);
+        }
+        var hazardZones = template.metadata.getRegionBounds("hazard_zone").collect(Collectors.toList());
+        var hazards = MapHazards.compile(rules, template, hazardZones, builtDeathTraps.values());
+
+        return new DeathRunMap(cfg.mapId(), template, builtDeathTraps, checkpoints.build(), effectZones.build(), mapTexts.build(), spawn, runnerStart, deathStart, gate, finish, hazards, cfg.time());
+    }
+
+    /**
+     * @return the index of the first checkpoint containing the position, or -1 if there is none
+     */
+    public int getCheckpointIndex(int x, int y, int z) {
+        for (int i = 0; i < checkpoints.size(); i++) {
+            if (checkpoints.get(i).bounds().contains(x, y, z)) return i;
+        }
+        return -1;
     }
 
     public ChunkGenerator createGenerator(MinecraftServer server) {
-        return new TemplateChunkGenerator(server, template);
+        return new PackedChunkGenerator(server, template);
     }
 
-    public void applyFeatures(ServerWorld world) {
-        for (var mapText : mapTexts) {
-            var lines = mapText.text().lines();
-            Vec3d pos = mapText.pos().add(0, (lines.size() * 0.35) * 0.5, 0);
-            for (var text : lines) {
-                Holograms.create(world, pos, text).show();
-                pos = pos.add(0, -0.35, 0);
-            }
-        }
+    /**
+     * Reads the template's mapped blocks into memory, so that generating the world does not wait on the disk
+     */
+    public void preloadTemplate() {
+        template.preload();
+    }
+
+    /**
+     * @return a rough estimate of the heap held by the shared template, its blocks are held off the heap
+     */
+    public long estimateTemplateBytes() {
+        return template.estimateHeapBytes();
+    }
+
+    /**
+     * @return the size of the shared template's mapped block data
+     */
+    public long getTemplateMappedBytes() {
+        return template.getMappedBytes();
+    }
+
+    public long estimateRegionBytes() {
+        long bytes = trapZones.size() * 160L + checkpoints.size() * 64L + effectZones.size() * 96L;
+        for (var mapText : mapTexts) bytes += 64 + mapText.text().lines().size() * 128L;
+        return bytes + hazards.lethalBlocks.estimateBytes();
     }
 }
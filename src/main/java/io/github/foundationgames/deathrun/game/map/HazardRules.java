@@ -0,0 +1,52 @@
+package io.github.foundationgames.deathrun.game.map;
+
+import com.mojang.serialization.Codec;
+import com.mojang.serialization.codecs.RecordCodecBuilder;
+import net.minecraft.util.Identifier;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * What kills runners on a map, read from the data of the template's "hazards" region.
+ * Maps without one use {@link #DEFAULT}. Regions marked "hazard_zone" are always lethal.
+ */
+public record HazardRules(int voidHeight, List<Identifier> lethalFluids, List<Identifier> lethalBlocks, List<EntityRule> lethalEntities) {
+    public static final HazardRules DEFAULT = new HazardRules(
+            0,
+            List.of(new Identifier("water"), new Identifier("flowing_water")),
+            List.of(),
+            List.of(
+                    new EntityRule(new Identifier("lightning_bolt"), 1.5, Optional.empty()),
+                    new EntityRule(new Identifier("arrow"), 0.08, Optional.empty()),
+                    new EntityRule(new Identifier("falling_block"), 0, Optional.of(new Identifier("pointed_dripstone")))
+            )
+    );
+
+    public static final Codec<HazardRules> CODEC = RecordCodecBuilder.create(instance -> instance.group(
+            Codec.INT.optionalFieldOf("void_height", DEFAULT.voidHeight).forGetter(HazardRules::voidHeight),
+            Identifier.CODEC.listOf().optionalFieldOf("lethal_fluids", DEFAULT.lethalFluids).forGetter(HazardRules::lethalFluids),
+            Identifier.CODEC.listOf().optionalFieldOf("lethal_blocks", DEFAULT.lethalBlocks).forGetter(HazardRules::lethalBlocks),
+            EntityRule.CODEC.listOf().optionalFieldOf("lethal_entities", DEFAULT.lethalEntities).forGetter(HazardRules::lethalEntities)
+    ).apply(instance, HazardRules::new));
+
+    /**
+     * @return whether the entity rules are the defaults, rather than declared by the map
+     */
+    public boolean hasDefaultEntities() {
+        // The codec hands out the default list itself when the field is absent
+        return lethalEntities == DEFAULT.lethalEntities;
+    }
+
+    /**
+     * Runners die when within {@code expand} blocks of an entity of this type, optionally
+     * only falling blocks of the given block
+     */
+    public record EntityRule(Identifier type, double expand, Optional<Identifier> block) {
+        public static final Codec<EntityRule> CODEC = RecordCodecBuilder.create(instance -> instance.group(
+                Identifier.CODEC.fieldOf("type").forGetter(EntityRule::type),
+                Codec.DOUBLE.optionalFieldOf("expand", 0d).forGetter(EntityRule::expand),
+                Identifier.CODEC.optionalFieldOf("block").forGetter(EntityRule::block)
+        ).apply(instance, EntityRule::new));
+    }
+}
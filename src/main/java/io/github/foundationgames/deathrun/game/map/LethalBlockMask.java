@@ -0,0 +1,82 @@
+package io.github.foundationgames.deathrun.game.map;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.minecraft.block.BlockState;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkSectionPos;
+
+import java.util.function.Predicate;
+
+/**
+ * A bitset of lethal block positions, packed as 4096 bits per chunk section.
+ * Testing a position is a hash lookup and a bit test with no world access.
+ */
+public class LethalBlockMask {
+    private static final int SECTION_WORDS = 16 * 16 * 16 / 64;
+
+    private final Predicate<BlockState> lethal;
+    private final Long2ObjectMap<long[]> sections;
+
+    private LethalBlockMask(Predicate<BlockState> lethal, Long2ObjectMap<long[]> sections) {
+        this.lethal = lethal;
+        this.sections = sections;
+    }
+
+    public static LethalBlockMask empty(Predicate<BlockState> lethal) {
+        return new LethalBlockMask(lethal, new Long2ObjectOpenHashMap<>());
+    }
+
+    public static LethalBlockMask build(PackedTemplate template, Predicate<BlockState> lethal) {
+        var mask = empty(lethal);
+        template.forEachBlock(lethal, pos -> mask.set(pos.getX(), pos.getY(), pos.getZ(), true));
+        return mask;
+    }
+
+    public LethalBlockMask copy() {
+        var copied = new Long2ObjectOpenHashMap<long[]>(sections.size());
+        for (var entry : sections.long2ObjectEntrySet()) {
+            copied.put(entry.getLongKey(), entry.getValue().clone());
+        }
+        return new LethalBlockMask(lethal, copied);
+    }
+
+    public boolean test(int x, int y, int z) {
+        var words = sections.get(ChunkSectionPos.asLong(x >> 4, y >> 4, z >> 4));
+        if (words == null) return false;
+        int index = index(x, y, z);
+        return (words[index >> 6] & (1L << index)) != 0;
+    }
+
+    public long estimateBytes() {
+        // Word arrays plus hash map entries
+        return sections.size() * (SECTION_WORDS * 8L + 16 + 24);
+    }
+
+    /**
+     * Updates the mask for a block that changed in the world
+     */
+    public void update(BlockPos pos, BlockState state) {
+        set(pos.getX(), pos.getY(), pos.getZ(), lethal.test(state));
+    }
+
+    private void set(int x, int y, int z, boolean value) {
+        long key = ChunkSectionPos.asLong(x >> 4, y >> 4, z >> 4);
+        var words = sections.get(key);
+        if (words == null) {
+            if (!value) return;
+            words = new long[SECTION_WORDS];
+            sections.put(key, words);
+        }
+        int index = index(x, y, z);
+        if (value) {
+            words[index >> 6] |= 1L << index;
+        } else {
+            words[index >> 6] &= ~(1L << index);
+        }
+    }
+
+    private static int index(int x, int y, int z) {
+        return (y & 15) << 8 | (z & 15) << 4 | (x & 15);
+    }
+}
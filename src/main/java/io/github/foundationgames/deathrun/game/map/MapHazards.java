@@ -0,0 +1,137 @@
+package io.github.foundationgames.deathrun.game.map;
+
+import io.github.foundationgames.deathrun.game.element.DeathTrapZone;
+import io.github.foundationgames.deathrun.game.state.DeathCause;
+import net.minecraft.block.Block;
+import net.minecraft.block.BlockState;
+import net.minecraft.entity.Entity;
+import net.minecraft.entity.EntityType;
+import net.minecraft.entity.FallingBlockEntity;
+import net.minecraft.fluid.Fluid;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.text.LiteralText;
+import net.minecraft.util.Identifier;
+import net.minecraft.util.math.Box;
+import net.minecraft.util.math.MathHelper;
+import net.minecraft.util.registry.Registry;
+import org.jetbrains.annotations.Nullable;
+import xyz.nucleoid.map_templates.BlockBounds;
+import xyz.nucleoid.plasmid.game.GameOpenException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * {@link HazardRules} compiled for one map. Checks run cheapest first, and rule
+ * families that cannot apply to the map are left out entirely.
+ */
+public class MapHazards {
+    public final LethalBlockMask lethalBlocks;
+    private final int voidHeight;
+    private final boolean testBlocks;
+    private final BlockBounds[] zones;
+    private final EntityType<?>[] entityTypes;
+    private final double[] entityExpand;
+    private final Block[] entityBlocks;
+
+    private MapHazards(LethalBlockMask lethalBlocks, int voidHeight, boolean testBlocks, BlockBounds[] zones, EntityType<?>[] entityTypes, double[] entityExpand, Block[] entityBlocks) {
+        this.lethalBlocks = lethalBlocks;
+        this.voidHeight = voidHeight;
+        this.testBlocks = testBlocks;
+        this.zones = zones;
+        this.entityTypes = entityTypes;
+        this.entityExpand = entityExpand;
+        this.entityBlocks = entityBlocks;
+    }
+
+    public static MapHazards compile(HazardRules rules, PackedTemplate template, List<BlockBounds> zones, Collection<DeathTrapZone> traps) throws GameOpenException {
+        Set<Fluid> fluids = new HashSet<>();
+        for (var id : rules.lethalFluids()) fluids.add(lookup(Registry.FLUID, id, "fluid"));
+        Set<Block> blocks = new HashSet<>();
+        for (var id : rules.lethalBlocks()) blocks.add(lookup(Registry.BLOCK, id, "block"));
+
+        boolean testBlocks = !fluids.isEmpty() || !blocks.isEmpty();
+        Predicate<BlockState> lethal = state -> blocks.contains(state.getBlock()) || fluids.contains(state.getFluidState().getFluid());
+        var lethalBlocks = testBlocks ? LethalBlockMask.build(template, lethal) : LethalBlockMask.empty(lethal);
+
+        // Default entity rules only apply if one of the map's traps can spawn that entity,
+        // rules the map declares are always kept since the map may spawn them by other means
+        boolean prune = rules.hasDefaultEntities();
+        var types = new ArrayList<EntityType<?>>();
+        var expand = new ArrayList<Double>();
+        var entityBlocks = new ArrayList<Block>();
+        for (var rule : rules.lethalEntities()) {
+            var type = lookup(Registry.ENTITY_TYPE, rule.type(), "entity type");
+            if (prune && traps.stream().noneMatch(zone -> zone.getTrap().canSpawn(type))) continue;
+            types.add(type);
+            expand.add(rule.expand());
+            entityBlocks.add(rule.block().isPresent() ? lookup(Registry.BLOCK, rule.block().get(), "block") : null);
+        }
+
+        return new MapHazards(lethalBlocks, rules.voidHeight(), testBlocks, zones.toArray(new BlockBounds[0]),
+                types.toArray(new EntityType<?>[0]), expand.stream().mapToDouble(Double::doubleValue).toArray(), entityBlocks.toArray(new Block[0]));
+    }
+
+    /**
+     * Tests the rules that only need the runner's bounding box and the game's copy of the
+     * lethal block mask. These do not touch the world.
+     *
+     * @return the cause of death, or null if the runner survives
+     */
+    public @Nullable DeathCause testSnapshot(LethalBlockMask mask, double minX, double minY, double minZ, double maxX, double maxY, double maxZ) {
+        // Void death
+        if (minY < voidHeight) return DeathCause.VOID;
+        // Hazard zones
+        int x = MathHelper.floor((minX + maxX) * 0.5);
+        int y = MathHelper.floor(minY);
+        int z = MathHelper.floor((minZ + maxZ) * 0.5);
+        for (var zone : zones) {
+            if (zone.contains(x, y, z)) return DeathCause.HAZARD_ZONE;
+        }
+        // Lethal fluids and blocks, tested slightly above the feet
+        return testBlocks && mask.test(x, MathHelper.floor(minY + 0.65), z) ? DeathCause.LETHAL_BLOCK : null;
+    }
+
+    /**
+     * Tests the rules that query the world for entities, these must run on the server thread
+     */
+    public boolean testWorld(ServerWorld world, Box box) {
+        for (int i = 0; i < entityTypes.length; i++) {
+            var block = entityBlocks[i];
+            if (!world.getEntitiesByType(entityTypes[i], box.expand(entityExpand[i]),
+                    (Entity e) -> block == null || (e instanceof FallingBlockEntity falling && falling.getBlockState().isOf(block))).isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Visits the live entities within the box of a type the rules make lethal, on the server thread
+     */
+    public void forEachLethal(ServerWorld world, Box box, Consumer<Entity> action) {
+        for (var type : entityTypes) {
+            world.getEntitiesByType(type, box, (Entity e) -> !e.isRemoved()).forEach(action);
+        }
+    }
+
+    /**
+     * @return whether the entity is of a type the rules make lethal, so {@link #testWorld} may find it
+     */
+    public boolean isLethalType(Entity entity) {
+        var type = entity.getType();
+        for (var lethal : entityTypes) {
+            if (lethal == type) return true;
+        }
+        return false;
+    }
+
+    private static <T> T lookup(Registry<T> registry, Identifier id, String kind) throws GameOpenException {
+        return registry.getOrEmpty(id).orElseThrow(() -> new GameOpenException(new LiteralText("Unknown lethal " + kind + " " + id)));
+    }
+}
@@ -0,0 +1,93 @@
+package io.github.foundationgames.deathrun.game.map;
+
+import io.github.foundationgames.deathrun.DeathRun;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.util.Util;
+import xyz.nucleoid.plasmid.game.GameOpenException;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Compiles maps for the next game in the background while a game is running, so opening the
+ * next game does not wait on compiling its regions, traps, hazard rules and lethal block mask.
+ * The standby map also keeps its shared template reachable between games, so it is not packed
+ * again. Creating the game's world, generating its chunks and lighting them is not covered,
+ * plasmid does that for the game space when the game opens, and the counters here only count
+ * how maps were compiled. A standby map is handed out once, then dropped.
+ */
+public final class MapStandby {
+    private static final Map<DRMapConfig, CompletableFuture<DeathRunMap>> STANDBY = new ConcurrentHashMap<>();
+    private static final AtomicInteger STANDBY_OPENS = new AtomicInteger();
+    private static final AtomicInteger COLD_OPENS = new AtomicInteger();
+
+    private static volatile long lastClosed = -1;
+
+    private MapStandby() {
+    }
+
+    /**
+     * Starts compiling the map in the background, if it is not compiled or compiling already
+     */
+    public static void prepare(MinecraftServer server, DRMapConfig cfg) {
+        STANDBY.computeIfAbsent(cfg, c -> CompletableFuture.supplyAsync(() -> {
+            var map = DeathRunMap.create(server, c);
+            map.preloadTemplate();
+            return map;
+        }, Util.getMainWorkerExecutor()));
+    }
+
+    /**
+     * Takes the standby map for the config if it finished compiling, and compiles the map otherwise.
+     * Never waits on a standby load that is still running, the map is compiled cold instead.
+     */
+    public static DeathRunMap open(MinecraftServer server, DRMapConfig cfg) throws GameOpenException {
+        long start = System.nanoTime();
+        DeathRunMap map = null;
+        var standby = STANDBY.remove(cfg);
+        if (standby != null) {
+            try {
+                map = standby.getNow(null);
+            } catch (CompletionException e) {
+                DeathRun.LOG.warn("Standby load of map {} failed, loading it again", cfg.mapId(), e.getCause());
+            }
+        }
+        boolean preloaded = map != null;
+        if (map == null) map = DeathRunMap.create(server, cfg);
+        (preloaded ? STANDBY_OPENS : COLD_OPENS).incrementAndGet();
+
+        long now = System.nanoTime();
+        DeathRun.LOG.info("Compiled DeathRun map {} in {} ms ({}), its world is created next{}", cfg.mapId(), (now - start) / 1_000_000, preloaded ? "standby" : "cold",
+                lastClosed >= 0 ? String.format(", %.2f s after the last game closed", (now - lastClosed) / 1e9) : "");
+        return map;
+    }
+
+    /**
+     * @return whether a standby map for the config finished loading and waits for the next game
+     */
+    public static boolean isReady(DRMapConfig cfg) {
+        var standby = STANDBY.get(cfg);
+        return standby != null && standby.isDone();
+    }
+
+    /**
+     * @return how many maps were taken compiled from standby since the server started
+     */
+    public static int getStandbyOpens() {
+        return STANDBY_OPENS.get();
+    }
+
+    /**
+     * @return how many maps were compiled when their game opened since the server started
+     */
+    public static int getColdOpens() {
+        return COLD_OPENS.get();
+    }
+
+    public static void onGameClosed() {
+        lastClosed = System.nanoTime();
+    }
+}
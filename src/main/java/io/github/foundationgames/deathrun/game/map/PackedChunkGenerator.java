@@ -0,0 +1,44 @@
+package io.github.foundationgames.deathrun.game.map;
+
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.world.ChunkRegion;
+import net.minecraft.world.chunk.Chunk;
+import net.minecraft.world.gen.StructureAccessor;
+import net.minecraft.world.gen.chunk.StructuresConfig;
+import xyz.nucleoid.plasmid.game.world.generator.GameChunkGenerator;
+
+import java.util.Collections;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Generates a game world from a {@link PackedTemplate}, reading blocks from its mapped file
+ * rather than from a template held on the heap.
+ */
+public class PackedChunkGenerator extends GameChunkGenerator {
+    private final PackedTemplate template;
+
+    public PackedChunkGenerator(MinecraftServer server, PackedTemplate template) {
+        super(createBiomeSource(server, template.biome), new StructuresConfig(Optional.empty(), Collections.emptyMap()));
+        this.template = template;
+    }
+
+    @Override
+    public CompletableFuture<Chunk> populateNoise(Executor executor, StructureAccessor structures, Chunk chunk) {
+        var pos = chunk.getPos();
+        if (!template.hasChunk(pos.x, pos.z)) return CompletableFuture.completedFuture(chunk);
+        return CompletableFuture.supplyAsync(() -> {
+            template.place(chunk);
+            return chunk;
+        }, executor);
+    }
+
+    @Override
+    public void populateEntities(ChunkRegion region) {
+        var world = region.toServerWorld();
+        for (var entity : template.getEntities(region.getCenterPos())) {
+            entity.createEntities(world, region::spawnEntity);
+        }
+    }
+}
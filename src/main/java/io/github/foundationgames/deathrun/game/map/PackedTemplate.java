@@ -0,0 +1,289 @@
+package io.github.foundationgames.deathrun.game.map;
+
+import io.github.foundationgames.deathrun.DeathRun;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import net.fabricmc.loader.api.FabricLoader;
+import net.minecraft.block.Block;
+import net.minecraft.block.BlockState;
+import net.minecraft.block.Blocks;
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.util.Identifier;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.util.math.ChunkSectionPos;
+import net.minecraft.util.registry.RegistryKey;
+import net.minecraft.world.biome.Biome;
+import net.minecraft.world.chunk.Chunk;
+import xyz.nucleoid.map_templates.BlockBounds;
+import xyz.nucleoid.map_templates.MapEntity;
+import xyz.nucleoid.map_templates.MapTemplate;
+import xyz.nucleoid.map_templates.MapTemplateMetadata;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.ref.Cleaner;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * The blocks of a map template, packed per chunk section into a memory-mapped file. Only the
+ * section index, block entities and entities stay on the heap, the blocks are paged in by the
+ * OS while chunks generate and are shared by every world of the map. Air-only sections are
+ * not stored. Read with absolute buffer access only, so generation threads may share it. The
+ * file is deleted once the template is unreachable, files left by a crash on the next start.
+ */
+public final class PackedTemplate {
+    private static final int SECTION_VOLUME = 16 * 16 * 16;
+    private static final AtomicLong FILES = new AtomicLong();
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    public final Identifier mapId;
+    /**
+     * Changes when a resource reload may have changed the template
+     */
+    public final long version;
+    public final BlockBounds bounds;
+    public final RegistryKey<Biome> biome;
+    public final MapTemplateMetadata metadata;
+    private final Long2IntOpenHashMap sections;
+    private final Long2ObjectOpenHashMap<List<NbtCompound>> blockEntities;
+    private final Long2ObjectOpenHashMap<List<MapEntity>> entities;
+    private final Path file;
+    private final MappedByteBuffer data;
+    private final long fileBytes;
+
+    private PackedTemplate(Identifier mapId, long version, MapTemplate template, Long2IntOpenHashMap sections, Long2ObjectOpenHashMap<List<NbtCompound>> blockEntities, Long2ObjectOpenHashMap<List<MapEntity>> entities, Path file, MappedByteBuffer data, long fileBytes) {
+        this.mapId = mapId;
+        this.version = version;
+        this.bounds = template.getBounds();
+        this.biome = template.getBiome();
+        this.metadata = template.getMetadata();
+        this.sections = sections;
+        this.blockEntities = blockEntities;
+        this.entities = entities;
+        this.file = file;
+        this.data = data;
+        this.fileBytes = fileBytes;
+    }
+
+    /**
+     * Writes the template's blocks to a new file in the template cache and maps it. The
+     * template itself is not referenced afterwards, apart from its metadata.
+     */
+    public static PackedTemplate pack(Identifier mapId, long version, MapTemplate template) throws IOException {
+        var file = getFile(mapId, FILES.incrementAndGet());
+        Files.createDirectories(file.getParent());
+
+        var sections = new Long2IntOpenHashMap();
+        sections.defaultReturnValue(-1);
+        var blockEntities = new Long2ObjectOpenHashMap<List<NbtCompound>>();
+        var entities = new Long2ObjectOpenHashMap<List<MapEntity>>();
+
+        var min = template.getBounds().min();
+        var max = template.getBounds().max();
+        var pos = new BlockPos.Mutable();
+        var states = new BlockState[SECTION_VOLUME];
+        var palette = new Object2IntOpenHashMap<BlockState>();
+        try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            for (int sx = min.getX() >> 4; sx <= max.getX() >> 4; sx++) {
+                for (int sz = min.getZ() >> 4; sz <= max.getZ() >> 4; sz++) {
+                    long chunk = ChunkPos.toLong(sx, sz);
+                    for (int sy = min.getY() >> 4; sy <= max.getY() >> 4; sy++) {
+                        palette.clear();
+                        for (int i = 0; i < SECTION_VOLUME; i++) {
+                            pos.set((sx << 4) + (i & 15), (sy << 4) + (i >> 8), (sz << 4) + ((i >> 4) & 15));
+                            var state = template.getBlockState(pos);
+                            states[i] = state;
+                            if (!state.isAir()) palette.putIfAbsent(state, palette.size());
+                            if (state.hasBlockEntity()) {
+                                var nbt = template.getBlockEntityNbt(pos);
+                                if (nbt != null) {
+                                    nbt.putInt("x", pos.getX());
+                                    nbt.putInt("y", pos.getY());
+                                    nbt.putInt("z", pos.getZ());
+                                    blockEntities.computeIfAbsent(chunk, c -> new ArrayList<>()).add(nbt);
+                                }
+                            }
+                        }
+                        template.getEntitiesInChunk(sx, sy, sz).forEach(entity -> entities.computeIfAbsent(chunk, c -> new ArrayList<>()).add(entity));
+                        if (palette.isEmpty()) continue;
+
+                        // Air is always index 0 of the palette
+                        sections.put(ChunkSectionPos.asLong(sx, sy, sz), out.size());
+                        var ids = new int[palette.size() + 1];
+                        ids[0] = Block.getRawIdFromState(Blocks.AIR.getDefaultState());
+                        for (var entry : palette.object2IntEntrySet()) ids[entry.getIntValue() + 1] = Block.getRawIdFromState(entry.getKey());
+                        out.writeInt(ids.length);
+                        for (int id : ids) out.writeInt(id);
+                        boolean wide = ids.length > 256;
+                        for (var state : states) {
+                            int index = state.isAir() ? 0 : palette.getInt(state) + 1;
+                            if (wide) out.writeShort(index);
+                            else out.writeByte(index);
+                        }
+                    }
+                }
+            }
+        }
+
+        MappedByteBuffer data;
+        long fileBytes;
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            fileBytes = channel.size();
+            // The mapping stays valid after the channel is closed
+            data = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileBytes);
+        }
+        sections.trim();
+        DeathRun.LOG.info("Packed template {} into {} sections, {} KiB mapped from {}", mapId, sections.size(), fileBytes / 1024, file);
+        var packed = new PackedTemplate(mapId, version, template, sections, blockEntities, entities, file, data, fileBytes);
+        // Shared templates are only weakly held, and are packed again into a new file after being released
+        CLEANER.register(packed, () -> delete(file));
+        return packed;
+    }
+
+    /**
+     * @return whether any block or block entity of the template lies in the chunk
+     */
+    public boolean hasChunk(int chunkX, int chunkZ) {
+        var min = bounds.min();
+        var max = bounds.max();
+        return chunkX >= min.getX() >> 4 && chunkX <= max.getX() >> 4 && chunkZ >= min.getZ() >> 4 && chunkZ <= max.getZ() >> 4;
+    }
+
+    /**
+     * Sets the template's blocks in a chunk being generated, and queues its block entities
+     */
+    public void place(Chunk chunk) {
+        var chunkPos = chunk.getPos();
+        var pos = new BlockPos.Mutable();
+        for (int sy = bounds.min().getY() >> 4; sy <= bounds.max().getY() >> 4; sy++) {
+            int offset = sections.get(ChunkSectionPos.asLong(chunkPos.x, sy, chunkPos.z));
+            if (offset < 0) continue;
+
+            int paletteSize = data.getInt(offset);
+            var palette = new BlockState[paletteSize];
+            for (int i = 0; i < paletteSize; i++) palette[i] = Block.getStateFromRawId(data.getInt(offset + 4 + i * 4));
+            int indices = offset + 4 + paletteSize * 4;
+            boolean wide = paletteSize > 256;
+            for (int i = 0; i < SECTION_VOLUME; i++) {
+                int index = wide ? Short.toUnsignedInt(data.getShort(indices + i * 2)) : Byte.toUnsignedInt(data.get(indices + i));
+                if (index == 0) continue;
+                pos.set(chunkPos.getStartX() + (i & 15), (sy << 4) + (i >> 8), chunkPos.getStartZ() + ((i >> 4) & 15));
+                chunk.setBlockState(pos, palette[index], false);
+            }
+        }
+        var nbts = blockEntities.get(chunkPos.toLong());
+        if (nbts != null) {
+            for (var nbt : nbts) chunk.addPendingBlockEntityNbt(nbt.copy());
+        }
+    }
+
+    public List<MapEntity> getEntities(ChunkPos pos) {
+        return entities.getOrDefault(pos.toLong(), List.of());
+    }
+
+    /**
+     * Visits every non-air block of the template that passes the filter, reading the packed sections
+     */
+    public void forEachBlock(Predicate<BlockState> filter, Consumer<BlockPos> action) {
+        var pos = new BlockPos.Mutable();
+        for (var entry : sections.long2IntEntrySet()) {
+            long section = entry.getLongKey();
+            int offset = entry.getIntValue();
+            int paletteSize = data.getInt(offset);
+            var matches = new boolean[paletteSize];
+            boolean any = false;
+            for (int i = 1; i < paletteSize; i++) {
+                matches[i] = filter.test(Block.getStateFromRawId(data.getInt(offset + 4 + i * 4)));
+                any |= matches[i];
+            }
+            if (!any) continue;
+
+            int indices = offset + 4 + paletteSize * 4;
+            boolean wide = paletteSize > 256;
+            int x = ChunkSectionPos.unpackX(section) << 4;
+            int y = ChunkSectionPos.unpackY(section) << 4;
+            int z = ChunkSectionPos.unpackZ(section) << 4;
+            for (int i = 0; i < SECTION_VOLUME; i++) {
+                int index = wide ? Short.toUnsignedInt(data.getShort(indices + i * 2)) : Byte.toUnsignedInt(data.get(indices + i));
+                if (matches[index]) action.accept(pos.set(x + (i & 15), y + (i >> 8), z + ((i >> 4) & 15)));
+            }
+        }
+    }
+
+    /**
+     * Pages the mapped block data into physical memory, where the OS keeps it while it is used
+     */
+    public void preload() {
+        data.load();
+    }
+
+    /**
+     * @return the size of the mapped block data, which is held off the heap
+     */
+    public long getMappedBytes() {
+        return fileBytes;
+    }
+
+    /**
+     * @return a rough estimate of the heap held by the section index, block entities and entities
+     */
+    public long estimateHeapBytes() {
+        long bytes = sections.size() * 24L;
+        for (var list : blockEntities.values()) bytes += 32 + list.size() * 256L;
+        for (var list : entities.values()) bytes += 32 + list.size() * 256L;
+        return bytes;
+    }
+
+    /**
+     * Deletes the backing file once the template is no longer shared. The mapping stays
+     * readable where the platform allows deleting mapped files, elsewhere it is left for the
+     * next start.
+     */
+    public void deleteFile() {
+        delete(file);
+    }
+
+    // Must not reference the template, it runs once the template is unreachable
+    private static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ignored) {
+        }
+    }
+
+    private static Path getFile(Identifier mapId, long index) {
+        return FabricLoader.getInstance().getGameDir().resolve(DeathRun.MOD_ID).resolve("cache").resolve("templates")
+                .resolve(mapId.getNamespace() + "_" + mapId.getPath().replace('/', '_') + "_" + index + ".bin");
+    }
+
+    /**
+     * Deletes template files left behind by a previous run that did not exit cleanly
+     */
+    public static void deleteStale() {
+        var dir = getFile(DeathRun.id("x"), 0).getParent();
+        if (!Files.isDirectory(dir)) return;
+        try (var files = Files.list(dir)) {
+            files.forEach(file -> {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException ignored) {
+                    // Retried on the next start
+                }
+            });
+        } catch (IOException e) {
+            DeathRun.LOG.warn("Could not clear the template cache", e);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package io.github.foundationgames.deathrun.game.map;
+
+import net.minecraft.resource.ResourceManager;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.util.Identifier;
+import xyz.nucleoid.map_templates.MapTemplateSerializer;
+
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Shares one {@link PackedTemplate} between every open instance of a map. A template is read
+ * and packed once per resource load, the full template is dropped right after packing. Packed
+ * templates are released once no game references them.
+ */
+public final class SharedTemplates {
+    private static final Map<Identifier, Entry> TEMPLATES = new HashMap<>();
+    private static WeakReference<ResourceManager> lastResources = new WeakReference<>(null);
+    private static long version = 0;
+
+    private SharedTemplates() {
+    }
+
+    public static PackedTemplate load(MinecraftServer server, Identifier mapId) throws IOException {
+        // Replaced by a reload, after which templates may have changed
+        var resources = server.getResourceManager();
+        long loadVersion;
+        synchronized (TEMPLATES) {
+            var template = get(mapId, resources);
+            if (template != null) return template;
+            if (lastResources.get() != resources) {
+                lastResources = new WeakReference<>(resources);
+                version++;
+            }
+            loadVersion = version;
+        }
+        // A template packed again after being released keeps its version, so cached chunk packets stay valid
+        var template = PackedTemplate.pack(mapId, loadVersion, MapTemplateSerializer.loadFromResource(server, mapId));
+        synchronized (TEMPLATES) {
+            // Another thread may have loaded the same template meanwhile, keep the first
+            var existing = get(mapId, resources);
+            if (existing != null) {
+                template.deleteFile();
+                return existing;
+            }
+            var replaced = TEMPLATES.put(mapId, new Entry(new WeakReference<>(resources), new WeakReference<>(template)));
+            // Games still open on the old template keep their mapping of it
+            var old = replaced != null ? replaced.template.get() : null;
+            if (old != null) old.deleteFile();
+            return template;
+        }
+    }
+
+    private static PackedTemplate get(Identifier mapId, ResourceManager resources) {
+        var entry = TEMPLATES.get(mapId);
+        return entry != null && entry.resources.get() == resources ? entry.template.get() : null;
+    }
+
+    private record Entry(WeakReference<ResourceManager> resources, WeakReference<PackedTemplate> template) {}
+}
@@ -1,28 +1,44 @@
 package io.github.foundationgames.deathrun.game.state;
 
-import com.google.common.collect.Lists;
+import io.github.foundationgames.deathrun.DeathRun;
 import io.github.foundationgames.deathrun.game.DeathRunConfig;
 import io.github.foundationgames.deathrun.game.element.CheckpointZone;
 import io.github.foundationgames.deathrun.game.element.DeathTrapZone;
 import io.github.foundationgames.deathrun.game.element.EffectZone;
 import io.github.foundationgames.deathrun.game.element.deathtrap.ResettingDeathTrap;
+import io.github.foundationgames.deathrun.game.map.ChunkPacketCache;
+import io.github.foundationgames.deathrun.game.map.DeathHeatmap;
 import io.github.foundationgames.deathrun.game.map.DeathRunMap;
+import io.github.foundationgames.deathrun.game.map.MapStandby;
+import io.github.foundationgames.deathrun.game.map.LethalBlockMask;
+import io.github.foundationgames.deathrun.game.state.logic.DRArenaSimulation;
+import io.github.foundationgames.deathrun.game.state.logic.DRDeterminism;
+import io.github.foundationgames.deathrun.game.state.logic.DREventLog;
+import io.github.foundationgames.deathrun.game.state.logic.DRHeatmapOverlay;
+import io.github.foundationgames.deathrun.game.state.logic.DRHologramLogic;
 import io.github.foundationgames.deathrun.game.state.logic.DRItemLogic;
 import io.github.foundationgames.deathrun.game.state.logic.DRPlayerLogic;
+import io.github.foundationgames.deathrun.game.state.logic.DRRunnerEvaluator;
+import io.github.foundationgames.deathrun.game.state.logic.DRRunnerLod;
+import io.github.foundationgames.deathrun.game.state.logic.DRRunnerStore;
+import io.github.foundationgames.deathrun.game.state.logic.DRSnapshotLog;
+import io.github.foundationgames.deathrun.game.state.logic.DRStartPipeline;
+import io.github.foundationgames.deathrun.game.state.logic.DRTickMetrics;
+import io.github.foundationgames.deathrun.game.state.logic.DRTrapExecutor;
+import io.github.foundationgames.deathrun.game.state.logic.DRVisibilityLogic;
 import io.github.foundationgames.deathrun.game.state.logic.entity.ActivatorTridentEntityBehavior;
 import io.github.foundationgames.deathrun.game.state.logic.entity.DREntityLogic;
 import io.github.foundationgames.deathrun.game.state.logic.entity.EntityBehavior;
+import io.github.foundationgames.deathrun.game.state.logic.entity.VirtualHazardLogic;
+import io.github.foundationgames.deathrun.game.state.logic.entity.VirtualProjectileLogic;
 import io.github.foundationgames.deathrun.util.DRUtil;
+import it.unimi.dsi.fastutil.objects.Object2LongOpenHashMap;
 import net.minecraft.block.AbstractButtonBlock;
+import net.minecraft.block.BlockState;
 import net.minecraft.block.Blocks;
 import net.minecraft.entity.Entity;
-import net.minecraft.entity.FallingBlockEntity;
-import net.minecraft.entity.LightningEntity;
 import net.minecraft.entity.effect.StatusEffectInstance;
 import net.minecraft.entity.effect.StatusEffects;
-import net.minecraft.entity.projectile.ArrowEntity;
-import net.minecraft.entity.projectile.TridentEntity;
-import net.minecraft.fluid.Fluids;
 import net.minecraft.network.packet.s2c.play.EntityVelocityUpdateS2CPacket;
 import net.minecraft.network.packet.s2c.play.ParticleS2CPacket;
 import net.minecraft.particle.ParticleTypes;
@@ -41,6 +57,7 @@ import net.minecraft.util.TypedActionResult;
 import net.minecraft.util.hit.BlockHitResult;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.Vec3d;
+import org.jetbrains.annotations.Nullable;
 import xyz.nucleoid.plasmid.game.GameActivity;
 import xyz.nucleoid.plasmid.game.GameCloseReason;
 import xyz.nucleoid.plasmid.game.GameSpace;
@@ -52,27 +69,56 @@ import xyz.nucleoid.stimuli.event.player.PlayerDamageEvent;
 import xyz.nucleoid.stimuli.event.player.PlayerDeathEvent;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.function.Predicate;
+import java.util.Random;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
 
 public class DRGame {
+    private static final Map<ServerWorld, DRGame> ACTIVE = new HashMap<>();
+
     public final ServerWorld world;
     public final GameActivity game;
     public final DeathRunMap map;
     public final DeathRunConfig config;
     public final DRPlayerLogic players;
-    private final DREntityLogic entities;
+    public final DRRunnerStore runners = new DRRunnerStore();
+    public final LethalBlockMask lethalBlocks;
+    public final DRVisibilityLogic visibility;
+    public final VirtualProjectileLogic projectiles;
+    public final VirtualHazardLogic hazards;
+    public final DRTickMetrics metrics;
+    public final DeathHeatmap heatmap;
+    public final DRHeatmapOverlay heatmapOverlay;
+    public final DRHologramLogic holograms;
+    public final DRArenaSimulation arena;
+    public final DRTrapExecutor traps;
+    public final DRDeterminism determinism;
+    public final DRSnapshotLog snapshots;
+    public final DRRunnerLod lod;
+    private final DRRunnerEvaluator evaluator;
+    public final DREntityLogic entities;
     private final DRItemLogic items = new DRItemLogic();
     private final List<ResetCandidate> resets = new ArrayList<>();
+    private DRStartPipeline startPipeline;
     private final Map<Player, Integer> finished = new LinkedHashMap<>();
+    private final Object2LongOpenHashMap<DeathTrapZone> triggerTimes = new Object2LongOpenHashMap<>();
+    private final int events;
+    private final int maxRewind;
 
     private static final int DEATH_TRAP_COOLDOWN = 10 * 20; // 10 seconds
     private static final int END_COUNTDOWN = 100 * 20; // 100 seconds
     private static final int FINISH_TIMER = 3 * 20; // 3 seconds
+    private static final int START_COUNTDOWN = 10 * 20; // 10 seconds
+    private static final int TRAP_ATTRIBUTION_TICKS = 5 * 20; // 5 seconds
+    private static final double TRAP_ATTRIBUTION_RANGE = 8;
+    private static final int TICK_MILLIS = 50;
 
-    private int startTimer = 10 * 20; // 10 seconds
+    private int startTimer = START_COUNTDOWN;
 
     // Timers, disabled (-1) until set to their time
     private int endCountdown = -1;
@@ -83,23 +129,60 @@ public class DRGame {
         this.game = game;
         this.map = waiting.map;
         this.config = waiting.config;
-        this.players = new DRPlayerLogic(this.world, game, map, config);
+        this.lethalBlocks = map.hazards.lethalBlocks.copy();
+        this.determinism = new DRDeterminism(config.seed().map(Random::new).orElse(world.random), config.seed().isPresent(), config.seed().orElse(0L), map.mapId);
+        this.players = new DRPlayerLogic(this.world, game, map, config, determinism.random);
+        this.holograms = waiting.holograms;
         this.entities = new DREntityLogic(world, this);
-
-        game.listen(ItemUseEvent.EVENT, items::processUse);
+        this.visibility = new DRVisibilityLogic(this, config.runnerVisibility());
+        this.maxRewind = config.lagCompensation() / TICK_MILLIS;
+        this.projectiles = new VirtualProjectileLogic(world, this, maxRewind);
+        this.hazards = new VirtualHazardLogic(world, this, maxRewind);
+        this.metrics = new DRTickMetrics(config.metrics(), world.getServer(), config.map().mapId());
+        this.lod = new DRRunnerLod(this, config.adaptiveLod());
+        this.evaluator = new DRRunnerEvaluator(this, config.parallelThreshold());
+        this.traps = new DRTrapExecutor(this, world, config.trapBudget());
+        this.heatmap = DeathHeatmap.get(world.getServer(), config.map().mapId());
+        this.heatmapOverlay = new DRHeatmapOverlay(heatmap);
+        this.arena = new DRArenaSimulation(config.arenaSimulation(), map);
+        this.events = waiting.events;
+        this.snapshots = new DRSnapshotLog(runners, config.snapshots(), map.mapId, world.getRegistryKey().getValue(), waiting.recovered);
+
+        game.listen(ItemUseEvent.EVENT, (player, hand) -> {
+            // Inputs come from the trace while replaying
+            if (determinism.isReplaying()) return TypedActionResult.fail(player.getStackInHand(hand));
+            determinism.recordItem(player, hand);
+            return items.processUse(player, hand);
+        });
     }
 
     public static void open(GameSpace space, DRWaiting waiting) {
         space.setActivity(game -> {
             var deathRun = new DRGame(game, waiting);
+            ACTIVE.put(deathRun.world, deathRun);
 
             DRUtil.setBaseGameRules(game);
 
-            DRPlayerLogic.sortTeams(deathRun.world.random, waiting.players, deathRun);
-            deathRun.players.forEach(deathRun.players::resetActive);
+            // Logs still being read when the game starts are left for the next game
+            var recovered = waiting.recovered.getNow(DRSnapshotLog.Recovered.EMPTY);
+            for (var drp : waiting.players.getPlayers()) {
+                var runner = recovered.runners().get(drp.getPlayer().getUuid());
+                if (runner != null && runner.team() == DRTeam.RUNNERS.ordinal() && drp instanceof DRWaiting.Player wp) wp.requestedTeam = DRTeam.RUNNERS;
+            }
+            DRPlayerLogic.sortTeams(deathRun.determinism.random, waiting.players, deathRun);
+            deathRun.determinism.setPlayers(deathRun.players.getPlayers().stream().map(DRPlayer::getPlayer).collect(Collectors.toList()));
+            deathRun.restore(recovered);
+            // Runners tracked each other while waiting
+            deathRun.visibility.refreshAll();
+            for (var drp : deathRun.players.getPlayers()) {
+                if (drp instanceof Player player) deathRun.logEvent(DREventLog.Type.TEAM, player, player.team.ordinal(), 0);
+            }
+            // Players are placed in batches over the countdown, starting with the first batch now
+            deathRun.startPipeline = new DRStartPipeline(deathRun.players, deathRun.config.startBatchSize(), START_COUNTDOWN);
+            deathRun.startPipeline.tick();
 
             deathRun.items.addBehavior("boost", (player, stack, hand) -> {
-                if (deathRun.players.get(player) instanceof Player gamePl && gamePl.started && !gamePl.finished && !player.getItemCooldownManager().isCoolingDown(stack.getItem())) {
+                if (deathRun.players.get(player) instanceof Player gamePl && gamePl.isStarted() && !gamePl.isFinished() && !player.getItemCooldownManager().isCoolingDown(stack.getItem())) {
                     double yaw = Math.toRadians(-player.getYaw());
                     var vel = new Vec3d(1.25 * Math.sin(yaw), 0.5, 1.25 * Math.cos(yaw));
                     player.networkHandler.sendPacket(new EntityVelocityUpdateS2CPacket(player.getId(), vel));
@@ -112,9 +195,9 @@ public class DRGame {
             });
 
             deathRun.items.addBehavior("activator", (player, stack, hand) -> {
-                if (deathRun.players.get(player) instanceof Player gamePl && gamePl.started && !gamePl.finished && !player.getItemCooldownManager().isCoolingDown(stack.getItem())) {
+                if (deathRun.players.get(player) instanceof Player gamePl && gamePl.isStarted() && !gamePl.isFinished() && !player.getItemCooldownManager().isCoolingDown(stack.getItem())) {
                     var world = deathRun.world;
-                    var trident = new TridentEntity(world, player, stack);
+                    var trident = deathRun.entities.pool.trident(player, stack);
                     trident.setProperties(player, player.getPitch(), player.getYaw(), 0, 3, 1);
                     deathRun.spawn(trident, new ActivatorTridentEntityBehavior());
                     world.playSoundFromEntity(null, trident, SoundEvents.ITEM_TRIDENT_THROW, SoundCategory.PLAYERS, 1, 1);
@@ -125,53 +208,196 @@ public class DRGame {
             });
 
             game.listen(GamePlayerEvents.OFFER, offer -> offer.reject(new TranslatableText("status.deathrun.in_progress")));
-            game.listen(GamePlayerEvents.LEAVE, deathRun.players::onLeave);
+            game.listen(GamePlayerEvents.LEAVE, player -> {
+                if (deathRun.players.get(player) instanceof Player gamePlayer) {
+                    deathRun.logEvent(DREventLog.Type.LEAVE, gamePlayer, 0, 0);
+                    deathRun.runners.release(gamePlayer.slot);
+                }
+                deathRun.players.onLeave(player);
+            });
             game.listen(PlayerDamageEvent.EVENT, (player, source, amount) -> ActionResult.FAIL);
             game.listen(PlayerDeathEvent.EVENT, (player, source) -> {
                 player.setHealth(20f);
                 deathRun.players.resetWaiting(player);
                 return ActionResult.FAIL;
             });
-            game.listen(GameActivityEvents.TICK, deathRun::tick);
+            var metrics = deathRun.metrics;
+            game.listen(GameActivityEvents.TICK, metrics::tick);
+            BiConsumer<ServerPlayerEntity, DRDeterminism.Input> replayInput = deathRun::replayInput;
+            game.listen(GameActivityEvents.TICK, () -> deathRun.determinism.beginTick(replayInput));
+            game.listen(GameActivityEvents.TICK, metrics.timed("game", deathRun::tick));
+            game.listen(GameActivityEvents.TICK, metrics.timed("traps", deathRun.traps::tick));
             game.listen(BlockUseEvent.EVENT, deathRun::useBlock);
-            game.listen(GameActivityEvents.TICK, deathRun.players::tick);
-            game.listen(GameActivityEvents.TICK, deathRun.entities::tick);
+            game.listen(GameActivityEvents.TICK, metrics.timed("projectiles", deathRun.projectiles::tick));
+            game.listen(GameActivityEvents.TICK, metrics.timed("hazards", deathRun.hazards::tick));
+            game.listen(GameActivityEvents.TICK, metrics.timed("players", deathRun.evaluator::tick));
+            game.listen(GameActivityEvents.TICK, () -> deathRun.arena.tick(deathRun.runners, deathRun.entities, deathRun.hazards, deathRun.projectiles));
+            game.listen(GameActivityEvents.TICK, metrics.timed("entities", deathRun.entities::tick));
+            game.listen(GameActivityEvents.TICK, metrics.timed("visibility", deathRun.visibility::tick));
+            game.listen(GameActivityEvents.TICK, deathRun.heatmapOverlay::tick);
+            game.listen(GameActivityEvents.TICK, deathRun.holograms::tick);
+            game.listen(GameActivityEvents.TICK, metrics.timed("snapshots", deathRun.snapshots::tick));
+            game.listen(GameActivityEvents.TICK, () -> {
+                if (deathRun.determinism.isEnabled()) deathRun.determinism.tick(deathRun.runners.stateHash());
+            });
+            if (deathRun.config.standby()) {
+                MapStandby.prepare(deathRun.world.getServer(), deathRun.config.map());
+            }
+            game.listen(GameActivityEvents.DESTROY, reason -> {
+                ACTIVE.remove(deathRun.world);
+                ChunkPacketCache.unregister(deathRun.world);
+                var memory = deathRun.estimateMemory();
+                DeathRun.LOG.info("DeathRun game on {} closing, estimated retained memory: {} KiB total", deathRun.map.mapId, memory.values().stream().mapToLong(Long::longValue).sum() / 1024);
+                memory.forEach((name, bytes) -> DeathRun.LOG.info("  {}: {} KiB", name, bytes / 1024));
+                MapStandby.onGameClosed();
+                deathRun.arena.report(metrics);
+                deathRun.lod.report(metrics);
+                deathRun.entities.report(metrics);
+                metrics.writeReport();
+                deathRun.heatmap.save();
+                deathRun.determinism.writeTrace();
+                deathRun.snapshots.close(reason == GameCloseReason.FINISHED);
+                DREventLog.close(deathRun.events, deathRun.world.getTime());
+            });
         });
     }
 
+    public static @Nullable DRGame get(ServerWorld world) {
+        return ACTIVE.get(world);
+    }
+
     private ActionResult useBlock(ServerPlayerEntity player, Hand hand, BlockHitResult hit) {
         if (this.players.get(player) instanceof Player gamePlayer) {
             if (gamePlayer.team == DRTeam.DEATHS) {
                 var pos = hit.getBlockPos();
-                var state = world.getBlockState(pos);
-                if (state.getBlock() instanceof AbstractButtonBlock button && !state.get(Properties.POWERED)) {
-                    var trapZone = map.trapZones.get(pos);
-                    if (trapZone != null) {
-                        world.setBlockState(pos, state.with(Properties.POWERED, true));
-                        world.getBlockTickScheduler().schedule(pos, button, DEATH_TRAP_COOLDOWN);
-                        trigger(trapZone);
-                        return ActionResult.SUCCESS;
-                    }
-                }
+                if (determinism.isReplaying()) return map.trapZones.containsKey(pos) ? ActionResult.FAIL : ActionResult.PASS;
+                return pressButton(player, pos);
             }
         }
         return ActionResult.PASS;
     }
 
+    private ActionResult pressButton(ServerPlayerEntity player, BlockPos pos) {
+        var state = world.getBlockState(pos);
+        if (state.getBlock() instanceof AbstractButtonBlock button && !state.get(Properties.POWERED)) {
+            var trapZone = map.trapZones.get(pos);
+            if (trapZone != null) {
+                determinism.recordButton(player, pos);
+                world.setBlockState(pos, state.with(Properties.POWERED, true));
+                world.getBlockTickScheduler().schedule(pos, button, DEATH_TRAP_COOLDOWN);
+                trigger(trapZone);
+                return ActionResult.SUCCESS;
+            }
+        }
+        return ActionResult.PASS;
+    }
+
+    /**
+     * Applies an input read from a replayed trace, the same way as the live input it was recorded from
+     */
+    private void replayInput(ServerPlayerEntity player, DRDeterminism.Input input) {
+        if (!(this.players.get(player) instanceof Player gamePlayer)) return;
+        switch (input.kind) {
+            case "button" -> {
+                if (gamePlayer.team == DRTeam.DEATHS && input.pos != null) pressButton(player, input.pos);
+            }
+            case "item" -> {
+                if (input.hand != null) {
+                    determinism.recordItem(player, input.hand);
+                    items.processUse(player, input.hand);
+                }
+            }
+        }
+    }
+
     public void trigger(DeathTrapZone trapZone) {
         var deathTrap = trapZone.getTrap();
-        deathTrap.trigger(this, world, trapZone.getZone());
+        traps.trigger(deathTrap, trapZone.getZone());
+        logEvent(DREventLog.Type.TRAP_TRIGGER, null, trapZone.getButton().asLong(), 0);
+        triggerTimes.put(trapZone, world.getTime());
         if (deathTrap instanceof ResettingDeathTrap resettable) {
             scheduleReset(resettable, trapZone);
         }
     }
 
+    /**
+     * Gives rejoining runners the checkpoint, time and placement they had in an interrupted game
+     */
+    private void restore(DRSnapshotLog.Recovered recovered) {
+        if (recovered.runners().isEmpty()) {
+            // Logs closed before any runner was written have nothing to restore
+            recovered.discard();
+            return;
+        }
+        var byUuid = new HashMap<UUID, Player>();
+        for (var drp : players.getPlayers()) {
+            if (drp instanceof Player player && player.team == DRTeam.RUNNERS) byUuid.put(player.getPlayer().getUuid(), player);
+        }
+        for (var entry : recovered.runners().entrySet()) {
+            var player = byUuid.get(entry.getKey());
+            if (player == null) continue;
+            var runner = entry.getValue();
+            runners.restore(player.slot, runner.flags(), runner.checkpoint(), runner.time());
+            player.getPlayer().sendMessage(new TranslatableText("message.deathrun.progress_restored").formatted(Formatting.GREEN), false);
+        }
+        for (var uuid : recovered.finished()) {
+            var player = byUuid.get(uuid);
+            if (player != null && player.isFinished()) finished.put(player, player.getTime());
+        }
+        recovered.discard();
+    }
+
+    private void logEvent(DREventLog.Type type, @Nullable Player player, long a, long b) {
+        DREventLog.log(events, type, world.getTime(), player == null ? null : player.getPlayer().getUuid(), a, b);
+    }
+
     public void openGate() {
         for (BlockPos pos : map.gate) {
             if (world.getBlockState(pos).isOf(Blocks.IRON_BARS)) world.removeBlock(pos, false);
         }
     }
 
+    public void onBlockChanged(BlockPos pos, BlockState state) {
+        lethalBlocks.update(pos, state);
+    }
+
+    /**
+     * Adds a runner death to the map's heatmap, attributed to the most recently triggered
+     * trap close to where it happened
+     */
+    public void recordDeath(Player player, BlockPos pos, DeathCause cause) {
+        if (!player.isStarted()) return;
+        long trap = DeathHeatmap.NO_TRAP;
+        long latest = world.getTime() - TRAP_ATTRIBUTION_TICKS;
+        var center = Vec3d.ofCenter(pos);
+        for (var entry : triggerTimes.object2LongEntrySet()) {
+            if (entry.getLongValue() >= latest && entry.getKey().getZone().asBox().expand(TRAP_ATTRIBUTION_RANGE).contains(center)) {
+                latest = entry.getLongValue();
+                trap = entry.getKey().getButton().asLong();
+            }
+        }
+        heatmap.record(pos.asLong(), cause, trap, player.getTime());
+    }
+
+    /**
+     * @return rough estimates of the heap retained by each part of the game, in bytes
+     */
+    public Map<String, Long> estimateMemory() {
+        var memory = new LinkedHashMap<String, Long>();
+        memory.put("template index (shared, blocks are mapped off the heap)", map.estimateTemplateBytes());
+        memory.put("map regions and hazards", map.estimateRegionBytes());
+        memory.put("lethal blocks", lethalBlocks.estimateBytes());
+        memory.put("runner store", runners.estimateBytes());
+        memory.put("holograms", holograms.estimateBytes());
+        memory.put("entities", entities.estimateBytes());
+        memory.put("virtual arrows", projectiles.estimateBytes());
+        memory.put("virtual hazards", hazards.estimateBytes());
+        memory.put("pending trap work", traps.estimateBytes());
+        memory.put("finished", finished.size() * 48L + triggerTimes.size() * 32L);
+        memory.put("heatmap (shared by map)", heatmap.estimateBytes());
+        return memory;
+    }
+
     public void scheduleReset(ResettingDeathTrap deathTrap, DeathTrapZone zone) {
         this.resets.add(new ResetCandidate(this, world, deathTrap, zone));
     }
@@ -204,13 +430,17 @@ public class DRGame {
     public void markFinished(Player player) {
         var pl = player.getPlayer();
         pl.getInventory().clear();
-        player.finished = true;
+        runners.setFinished(player.slot);
+        // Finished runners see everyone
+        visibility.refresh(pl);
     }
 
     public void finish(Player player) {
         int time = player.getTime();
         finished.put(player, time);
+        snapshots.recordFinish(player.slot);
         int place = finished.size();
+        logEvent(DREventLog.Type.FINISH, player, time, place);
 
         int totalSec = time / 20;
         int min = (int)Math.floor((float)totalSec / 60);
@@ -224,6 +454,7 @@ public class DRGame {
         var pl = player.getPlayer();
 
         pl.sendMessage(text, false);
+        holograms.setText(pl, "placement", 0, new TranslatableText(getLocalizationForPlace(place), place).styled(style -> style.withColor(getColorForPlace(place)).withBold(true)).append(timeText));
         markFinished(player);
 
         if (place == 1) {
@@ -265,13 +496,18 @@ public class DRGame {
 
     public void start() {
         startTimer = 0;
+        startPipeline.flush();
+        // A restored game that already had a winner keeps its end countdown
+        if (!finished.isEmpty() && endCountdown < 0) endCountdown = END_COUNTDOWN;
         players.getPlayers().forEach(p -> { if (p instanceof Player pl) pl.onStart(); });
         openGate();
+        logEvent(DREventLog.Type.START, null, 0, 0);
     }
 
     public void end() {
         endCountdown = -1;
         finishTimer = FINISH_TIMER;
+        logEvent(DREventLog.Type.END, null, finished.size(), 0);
         players.getPlayers().forEach(drp -> {
             if (drp instanceof Player player && player.team == DRTeam.RUNNERS && !player.isFinished()) {
                 markFinished(player);
@@ -316,6 +552,7 @@ public class DRGame {
 
     public void tick() {
         if (startTimer > 0) {
+            startPipeline.tick();
             if (startTimer % 20 == 0) {
                 int sec = startTimer / 20;
                 var format = sec <= 3 ? Formatting.GREEN : Formatting.DARK_GREEN;
@@ -336,7 +573,7 @@ public class DRGame {
                 if (drPlayer instanceof Player player) {
                     var pl = player.getPlayer();
                     var key = "message.deathrun.game_ends_in";
-                    if (player.team == DRTeam.RUNNERS && !player.finished) {
+                    if (player.team == DRTeam.RUNNERS && !player.isFinished()) {
                         key = "message.deathrun.seconds_to_finish";
                     }
                     pl.sendMessage(new TranslatableText(key, (int)((float)endCountdown / 20)), true);
@@ -360,93 +597,114 @@ public class DRGame {
         resets.removeIf(r -> r.removed);
     }
 
-    public static final List<Predicate<Player>> DEATH_CONDITIONS = Lists.newArrayList(
-            // Void death
-            player -> {
-                var serverP = player.getPlayer();
-                return serverP.getPos().y < 0;
-            },
-            // Water death
-            player -> {
-                var serverP = player.getPlayer();
-                var world = serverP.world;
-                var fluid = world.getFluidState(new BlockPos(serverP.getPos().add(0, 0.65, 0))).getFluid();
-                return fluid == Fluids.WATER || fluid == Fluids.FLOWING_WATER;
-            },
-            // Lightning death
-            player -> {
-                var serverP = player.getPlayer();
-                var world = serverP.world;
-                return world.getEntitiesByClass(LightningEntity.class, serverP.getBoundingBox().expand(1.5, 1.5, 1.5), e -> true).size() > 0;
-            },
-            // Arrow death
-            player -> {
-                var serverP = player.getPlayer();
-                var world = serverP.world;
-                return world.getEntitiesByClass(ArrowEntity.class, serverP.getBoundingBox().expand(0.08, 0.08, 0.08), e -> true).size() > 0;
-            },
-            // Falling hazard death
-            player -> {
-                var serverP = player.getPlayer();
-                var world = serverP.world;
-                return world.getEntitiesByClass(FallingBlockEntity.class, serverP.getBoundingBox(),
-                        e -> e.getBlockState().isOf(Blocks.POINTED_DRIPSTONE)).size() > 0;
-            }
-    );
+    /**
+     * Death checks that only read the runner's position and bounding box and the
+     * game's virtual hazards, which are not modified while players tick. These are
+     * safe to evaluate off the server thread.
+     *
+     * @return the cause of death, or null if the runner survives
+     */
+    public @Nullable DeathCause getSnapshotDeath(Player player, double minX, double minY, double minZ, double maxX, double maxY, double maxZ) {
+        // Void, hazard zone and lethal block death
+        var cause = map.hazards.testSnapshot(lethalBlocks, minX, minY, minZ, maxX, maxY, maxZ);
+        if (cause != null) return cause;
+        // Virtual arrow death
+        if (projectiles.isHit(player)) return DeathCause.ARROW;
+        // Virtual falling hazard and lightning death, skipped for far runners under load
+        if (!lod.isFull(player.slot)) return null;
+        return hazards.intersects(getRewindTicks(player), minX, minY, minZ, maxX, maxY, maxZ) ? DeathCause.FALLING_HAZARD : null;
+    }
+
+    /**
+     * @return whether the player still waits in the lobby to be placed at their start position
+     */
+    public boolean isAwaitingStart(ServerPlayerEntity player) {
+        return startPipeline != null && startPipeline.isWaiting(player);
+    }
+
+    /**
+     * @return how many ticks behind the server the player sees virtual hazards, their round trip
+     * time limited to the configured lag compensation, 0 with lag compensation off
+     */
+    public int getRewindTicks(Player player) {
+        if (maxRewind == 0) return 0;
+        return Math.min(maxRewind, (player.getPlayer().pingMilliseconds + TICK_MILLIS / 2) / TICK_MILLIS);
+    }
 
     public static class Player extends DRPlayer {
         public final DRTeam team;
         public final DRGame game;
-        private CheckpointZone checkpoint = null;
-
-        private boolean started = false;
-        private boolean finished = false;
-        private int time = 0;
+        private final int slot;
 
         public Player(ServerPlayerEntity player, DRPlayerLogic logic, DRTeam team, DRGame game) {
             super(player, logic);
             this.team = team;
             this.game = game;
+            this.slot = game.runners.allocate(this, team);
         }
 
-        public CheckpointZone getCheckpoint() {
-            return checkpoint;
+        public @Nullable CheckpointZone getCheckpoint() {
+            int index = game.runners.getCheckpoint(slot);
+            return index >= 0 ? game.map.checkpoints.get(index) : null;
         }
 
         public int getTime() {
-            return time;
+            return game.runners.getTime(slot);
         }
 
         public void onStart() {
-            started = true;
+            game.runners.setStarted(slot);
+        }
+
+        public boolean isStarted() {
+            return game.runners.isStarted(slot);
         }
 
         public boolean isFinished() {
-            return finished;
+            return game.runners.isFinished(slot);
         }
 
         @Override
         public void tick() {
-            var pos = getPlayer().getBlockPos();
+            var pl = getPlayer();
+            var pos = pl.getBlockPos();
             if (team == DRTeam.RUNNERS) {
-                if (started && !finished) time++;
-                for (var predicate : DEATH_CONDITIONS) {
-                    if (predicate.test(this)) {
-                        var pl = getPlayer();
-                        logic.resetActive(pl);
-                        pl.playSound(SoundEvents.ENTITY_GENERIC_HURT, SoundCategory.PLAYERS, 1, 1);
-                    }
+                var box = pl.getBoundingBox();
+                tick(pos, game.getSnapshotDeath(this, box.minX, box.minY, box.minZ, box.maxX, box.maxY, box.maxZ),
+                        game.map.getCheckpointIndex(pos.getX(), pos.getY(), pos.getZ()), game.map.finish.contains(pos));
+            } else {
+                tick(pos, null, -1, false);
+            }
+        }
+
+        /**
+         * Applies one tick given the decisions that only depend on the runner's position,
+         * which may have been evaluated ahead of time from a snapshot. Timers are advanced
+         * separately by {@link DRRunnerStore#tickTimers()}.
+         */
+        public void tick(BlockPos pos, @Nullable DeathCause snapshotDeath, int checkpointIndex, boolean inFinish) {
+            // Runners not placed yet still stand in the lobby, where no runner check applies
+            if (team == DRTeam.RUNNERS && !game.isAwaitingStart(getPlayer())) {
+                // Entity death checks read the world, so they run here, skipped under load only while no lethal entity is near
+                var cause = snapshotDeath;
+                if (cause == null && game.lod.isFull(slot) && game.map.hazards.testWorld(game.world, getPlayer().getBoundingBox())) cause = DeathCause.ENTITY;
+                if (cause != null) {
+                    game.recordDeath(this, pos, cause);
+                    game.logEvent(DREventLog.Type.DEATH, this, cause.ordinal(), pos.asLong());
+                    var pl = getPlayer();
+                    logic.resetActive(pl);
+                    pl.playSound(SoundEvents.ENTITY_GENERIC_HURT, SoundCategory.PLAYERS, 1, 1);
                 }
-                for (CheckpointZone zone : game.map.checkpoints) {
-                    if (zone.bounds().contains(pos.getX(), pos.getY(), pos.getZ())) {
-                        if (this.checkpoint != zone) notifyCheckpoint();
-                        this.checkpoint = zone;
-                        break;
+                if (checkpointIndex >= 0) {
+                    if (game.runners.getCheckpoint(slot) != checkpointIndex) {
+                        notifyCheckpoint();
+                        game.logEvent(DREventLog.Type.CHECKPOINT, this, checkpointIndex, 0);
                     }
+                    game.runners.setCheckpoint(slot, checkpointIndex);
                 }
-                if (finished) {
+                if (isFinished()) {
                     getPlayer().addStatusEffect(new StatusEffectInstance(StatusEffects.INVISIBILITY, 5, 0, true, false, false));
-                } else if (game.map.finish.contains(pos)) {
+                } else if (inFinish) {
                     game.finish(this);
                 }
             }
@@ -488,7 +746,8 @@ public class DRGame {
         public void tick() {
             this.time--;
             if (this.time <= 0) {
-                deathTrap.reset(game, world, zone.getZone());
+                game.traps.reset(deathTrap, zone.getZone());
+                game.logEvent(DREventLog.Type.TRAP_RESET, null, zone.getButton().asLong(), 0);
                 removed = true;
             }
         }
@@ -1,9 +1,14 @@
 package io.github.foundationgames.deathrun.game.state;
 
 import io.github.foundationgames.deathrun.game.DeathRunConfig;
+import io.github.foundationgames.deathrun.game.map.ChunkPacketCache;
 import io.github.foundationgames.deathrun.game.map.DeathRunMap;
+import io.github.foundationgames.deathrun.game.map.MapStandby;
+import io.github.foundationgames.deathrun.game.state.logic.DREventLog;
+import io.github.foundationgames.deathrun.game.state.logic.DRHologramLogic;
 import io.github.foundationgames.deathrun.game.state.logic.DRItemLogic;
 import io.github.foundationgames.deathrun.game.state.logic.DRPlayerLogic;
+import io.github.foundationgames.deathrun.game.state.logic.DRSnapshotLog;
 import io.github.foundationgames.deathrun.util.DRUtil;
 import net.minecraft.server.network.ServerPlayerEntity;
 import net.minecraft.server.world.ServerWorld;
@@ -23,20 +28,30 @@ import xyz.nucleoid.plasmid.game.event.GamePlayerEvents;
 import xyz.nucleoid.stimuli.event.item.ItemUseEvent;
 import xyz.nucleoid.stimuli.event.player.PlayerDeathEvent;
 
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+
 public class DRWaiting {
     public final ServerWorld world;
     public final GameActivity game;
     public final DeathRunMap map;
     public final DeathRunConfig config;
     public final DRPlayerLogic players;
+    public final DRHologramLogic holograms;
+    public final CompletableFuture<DRSnapshotLog.Recovered> recovered;
+    public final int events;
     private final DRItemLogic items = new DRItemLogic();
+    private boolean started = false;
 
     public DRWaiting(ServerWorld world, GameActivity game, DeathRunMap map, DeathRunConfig config) {
         this.world = world;
         this.game = game;
         this.map = map;
         this.config = config;
-        this.players = new DRPlayerLogic(this.world, game, map, config);
+        this.players = new DRPlayerLogic(this.world, game, map, config, config.seed().map(Random::new).orElse(world.random));
+        this.holograms = new DRHologramLogic(world, map.mapTexts, config.hologramDistance());
+        this.events = config.eventLog() ? DREventLog.open(map.mapId, world.getTime()) : -1;
+        this.recovered = config.snapshots() ? DRSnapshotLog.recover(map.mapId) : CompletableFuture.completedFuture(DRSnapshotLog.Recovered.EMPTY);
 
         game.listen(ItemUseEvent.EVENT, items::processUse);
     }
@@ -45,18 +60,17 @@ public class DRWaiting {
         var server = ctx.server();
         var cfg = ctx.config();
         var mapCfg = cfg.map();
-        var map = DeathRunMap.create(server, mapCfg);
+        var map = MapStandby.open(server, mapCfg);
         var worldCfg = new RuntimeWorldConfig().setTimeOfDay(mapCfg.time()).setGenerator(map.createGenerator(server));
 
         worldCfg.setGameRule(GameRules.DO_FIRE_TICK, false);
 
         return ctx.openWithWorld(worldCfg, (game, world) -> {
             var waiting = new DRWaiting(world, game, map, cfg);
+            ChunkPacketCache.register(world, map);
 
             GameWaitingLobby.addTo(game, cfg.players());
 
-            map.applyFeatures(world);
-
             DRUtil.setBaseGameRules(game);
 
             waiting.items.addBehavior("leave_game", (player, stack, hand) -> {
@@ -92,14 +106,28 @@ public class DRWaiting {
                 return ActionResult.FAIL;
             });
             game.listen(GameActivityEvents.TICK, waiting.players::tick);
+            game.listen(GameActivityEvents.TICK, waiting.holograms::tick);
+            game.listen(GameActivityEvents.DESTROY, reason -> {
+                // Once started, the game cleans up when it closes
+                if (!waiting.started) waiting.close();
+            });
         });
     }
 
     private GameResult requestStart() {
+        started = true;
         DRGame.open(game.getGameSpace(), this);
         return GameResult.ok();
     }
 
+    /**
+     * Cleans up after a game space closed before its game started
+     */
+    private void close() {
+        ChunkPacketCache.unregister(world);
+        DREventLog.close(events, world.getTime());
+    }
+
     public static class Player extends DRPlayer {
         public DRTeam requestedTeam = null;
 
@@ -0,0 +1,13 @@
+package io.github.foundationgames.deathrun.game.state;
+
+import java.util.Locale;
+
+public enum DeathCause {
+    VOID, HAZARD_ZONE, LETHAL_BLOCK, ENTITY, ARROW, FALLING_HAZARD;
+
+    public static final DeathCause[] VALUES = values();
+
+    public String getName() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+}
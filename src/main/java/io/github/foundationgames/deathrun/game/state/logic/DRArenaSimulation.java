@@ -0,0 +1,166 @@
+package io.github.foundationgames.deathrun.game.state.logic;
+
+import io.github.foundationgames.deathrun.game.map.DeathRunMap;
+import io.github.foundationgames.deathrun.game.state.DRTeam;
+import io.github.foundationgames.deathrun.game.state.logic.entity.DREntityLogic;
+import io.github.foundationgames.deathrun.game.state.logic.entity.VirtualHazardLogic;
+import io.github.foundationgames.deathrun.game.state.logic.entity.VirtualProjectileLogic;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import xyz.nucleoid.map_templates.BlockBounds;
+
+/**
+ * Decides which chunks of the arena are simulated. With arena simulation enabled, only chunks
+ * overlapping trap zones and their buttons, the gate, the finish, checkpoints and effect zones
+ * get random ticks, weather and block entity ticks. Everything else is frozen. Scheduled block
+ * and fluid ticks also run in chunks close to an unfinished runner, elsewhere they are deferred
+ * and scheduled again, rather than dropped, until a runner comes close. Chunks around live trap
+ * entities, virtual hazards and arrows are simulated fully, so a hazard that leaves its zone keeps
+ * falling or flowing. Entities are not affected.
+ */
+public class DRArenaSimulation {
+    // How long a deferred scheduled tick waits before it is tried again
+    public static final int DEFER_TICKS = 20;
+    private static final int AWAKE_RADIUS = 2;
+    private static final int UPDATE_INTERVAL = 20;
+
+    private final boolean enabled;
+    private final LongSet active = new LongOpenHashSet();
+    // Chunks near runners, recomputed every second
+    private final LongSet awake = new LongOpenHashSet();
+    // Chunks around live hazards, recomputed every tick
+    private final LongSet hazards = new LongOpenHashSet();
+    private int ticks = 0;
+
+    private long chunkTicks = 0;
+    private long chunkTicksSkipped = 0;
+    private long blockTicksSkipped = 0;
+    private long blockEntityTicksSkipped = 0;
+
+    public DRArenaSimulation(boolean enabled, DeathRunMap map) {
+        this.enabled = enabled;
+        if (!enabled) return;
+
+        for (var zone : map.trapZones.values()) {
+            add(zone.getZone());
+            add(BlockBounds.of(zone.getButton()));
+        }
+        for (var checkpoint : map.checkpoints) add(checkpoint.bounds());
+        for (var zone : map.effectZones) add(zone.bounds());
+        add(map.gate);
+        add(map.finish);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public LongSet getActiveChunks() {
+        return active;
+    }
+
+    public boolean shouldTickChunk(ChunkPos pos) {
+        if (!enabled) return true;
+        if (isActive(pos.toLong())) {
+            chunkTicks++;
+            return true;
+        }
+        chunkTicksSkipped++;
+        return false;
+    }
+
+    /**
+     * @return whether a scheduled tick at the position runs now, otherwise it must be scheduled again
+     */
+    public boolean shouldTickBlock(BlockPos pos) {
+        if (!enabled) return true;
+        long chunk = ChunkPos.toLong(pos.getX() >> 4, pos.getZ() >> 4);
+        if (isActive(chunk) || awake.contains(chunk)) return true;
+        blockTicksSkipped++;
+        return false;
+    }
+
+    public void tick(DRRunnerStore store, DREntityLogic entities, VirtualHazardLogic virtualHazards, VirtualProjectileLogic projectiles) {
+        if (!enabled) return;
+        // Hazards move every tick, and there are few of them
+        hazards.clear();
+        entities.forEachChunk(this::addHazard);
+        virtualHazards.forEachChunk(this::addHazard);
+        projectiles.forEachChunk(this::addHazard);
+
+        if (ticks++ % UPDATE_INTERVAL != 0) return;
+        awake.clear();
+        for (int slot = 0; slot < store.size(); slot++) {
+            var player = store.get(slot);
+            if (player == null || player.team != DRTeam.RUNNERS || store.isFinished(slot)) continue;
+            long pos = store.getBlockPos(slot);
+            int cx = BlockPos.unpackLongX(pos) >> 4;
+            int cz = BlockPos.unpackLongZ(pos) >> 4;
+            for (int x = cx - AWAKE_RADIUS; x <= cx + AWAKE_RADIUS; x++) {
+                for (int z = cz - AWAKE_RADIUS; z <= cz + AWAKE_RADIUS; z++) {
+                    awake.add(ChunkPos.toLong(x, z));
+                }
+            }
+        }
+    }
+
+    public boolean shouldTickBlockEntity(BlockPos pos) {
+        if (!enabled || isActive(ChunkPos.toLong(pos.getX() >> 4, pos.getZ() >> 4))) return true;
+        blockEntityTicksSkipped++;
+        return false;
+    }
+
+    public long getChunkTicks() {
+        return chunkTicks;
+    }
+
+    public long getChunkTicksSkipped() {
+        return chunkTicksSkipped;
+    }
+
+    public long getBlockTicksSkipped() {
+        return blockTicksSkipped;
+    }
+
+    public long getBlockEntityTicksSkipped() {
+        return blockEntityTicksSkipped;
+    }
+
+    public void report(DRTickMetrics metrics) {
+        if (!enabled) return;
+        metrics.count("arena_active_chunks", active.size());
+        metrics.count("arena_hazard_chunks", hazards.size());
+        metrics.count("arena_chunk_ticks", chunkTicks);
+        metrics.count("arena_chunk_ticks_skipped", chunkTicksSkipped);
+        metrics.count("arena_block_ticks_deferred", blockTicksSkipped);
+        metrics.count("arena_block_entity_ticks_skipped", blockEntityTicksSkipped);
+    }
+
+    private boolean isActive(long chunk) {
+        return active.contains(chunk) || hazards.contains(chunk);
+    }
+
+    // Includes the neighbours, which a hazard crossing a chunk border updates as well
+    private void addHazard(long chunk) {
+        int cx = ChunkPos.getPackedX(chunk);
+        int cz = ChunkPos.getPackedZ(chunk);
+        for (int x = cx - 1; x <= cx + 1; x++) {
+            for (int z = cz - 1; z <= cz + 1; z++) {
+                hazards.add(ChunkPos.toLong(x, z));
+            }
+        }
+    }
+
+    // Includes a block of margin, so blocks next to a zone that update it keep ticking
+    private void add(BlockBounds bounds) {
+        var min = bounds.min();
+        var max = bounds.max();
+        for (int x = (min.getX() - 1) >> 4; x <= (max.getX() + 1) >> 4; x++) {
+            for (int z = (min.getZ() - 1) >> 4; z <= (max.getZ() + 1) >> 4; z++) {
+                active.add(ChunkPos.toLong(x, z));
+            }
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package io.github.foundationgames.deathrun.game.state.logic;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import net.minecraft.block.Block;
+import net.minecraft.block.BlockState;
+import net.minecraft.util.math.BlockPos;
+
+/**
+ * The blocks one activation of a resetting trap changed, as packed positions and the raw
+ * ids of the states they had before. Only the first change to a position is kept, so
+ * restoring the recorded states undoes the activation regardless of order.
+ */
+public class DRBlockJournal {
+    private final LongArrayList positions = new LongArrayList();
+    private final IntArrayList states = new IntArrayList();
+    private final LongOpenHashSet recorded = new LongOpenHashSet();
+
+    public void record(BlockPos pos, BlockState previous) {
+        long packed = pos.asLong();
+        if (recorded.add(packed)) {
+            positions.add(packed);
+            states.add(Block.getRawIdFromState(previous));
+        }
+    }
+
+    public int size() {
+        return positions.size();
+    }
+
+    /**
+     * @return the changed positions, most recent first
+     */
+    public long[] getPositions() {
+        var array = positions.toLongArray();
+        reverse(array);
+        return array;
+    }
+
+    /**
+     * @return the raw ids of the previous states, in the order of {@link #getPositions()}
+     */
+    public int[] getStates() {
+        var array = states.toIntArray();
+        reverse(array);
+        return array;
+    }
+
+    public long estimateBytes() {
+        // Position and state per change, plus the recorded set
+        return positions.size() * (8L + 4 + 16);
+    }
+
+    private static void reverse(long[] array) {
+        for (int i = 0, j = array.length - 1; i < j; i++, j--) {
+            long swap = array[i];
+            array[i] = array[j];
+            array[j] = swap;
+        }
+    }
+
+    private static void reverse(int[] array) {
+        for (int i = 0, j = array.length - 1; i < j; i++, j--) {
+            int swap = array[i];
+            array[i] = array[j];
+            array[j] = swap;
+        }
+    }
+}
@@ -0,0 +1,288 @@
+package io.github.foundationgames.deathrun.game.state.logic;
+
+import io.github.foundationgames.deathrun.DeathRun;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import net.fabricmc.loader.api.FabricLoader;
+import net.minecraft.server.network.ServerPlayerEntity;
+import net.minecraft.util.Hand;
+import net.minecraft.util.Identifier;
+import net.minecraft.util.Util;
+import net.minecraft.util.math.BlockPos;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
+
+/**
+ * With a configured seed, a game draws all of its randomness from one seeded {@link Random}
+ * and records a trace of player positions and inputs every tick, and a hash of runner state
+ * every second. Traces of two runs of the same seed can be compared to find the first tick
+ * where they diverged. A trace can be armed for replay, then the next seeded game of its map
+ * teleports its players along the recorded positions and applies the recorded inputs instead
+ * of live ones. Players are matched to the trace by their order of UUIDs at the start.
+ * Trace lines are buffered and appended to the file in order on the IO worker, in batches.
+ */
+public class DRDeterminism {
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ss");
+    private static final String HEADER = "# DeathRun trace for ";
+    private static final int HASH_INTERVAL = 20;
+    private static final int FLUSH_CHARS = 64 * 1024;
+
+    private static @Nullable Replay armed;
+
+    public final Random random;
+    private final boolean enabled;
+    private final long seed;
+    private final Identifier mapId;
+    private final StringBuilder trace = new StringBuilder();
+    private final List<ServerPlayerEntity> order = new ArrayList<>();
+    private final Object2IntOpenHashMap<UUID> indices = new Object2IntOpenHashMap<>();
+    private @Nullable Path file;
+    // Appends of earlier batches, each batch is appended after the previous
+    private CompletableFuture<Void> writes = CompletableFuture.completedFuture(null);
+    private double[] lastPositions = new double[0];
+    private @Nullable Replay replay;
+    private int ticks = 0;
+
+    public DRDeterminism(Random random, boolean enabled, long seed, Identifier mapId) {
+        this.random = random;
+        this.enabled = enabled;
+        this.seed = seed;
+        this.mapId = mapId;
+        this.indices.defaultReturnValue(-1);
+        if (enabled && armed != null && armed.mapId.equals(mapId) && armed.seed == seed) {
+            this.replay = armed;
+            armed = null;
+            DeathRun.LOG.info("Replaying DeathRun trace of {} seed {}", mapId, seed);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean isReplaying() {
+        return replay != null;
+    }
+
+    /**
+     * Numbers the game's players for the trace, must be called once teams are sorted
+     */
+    public void setPlayers(List<ServerPlayerEntity> players) {
+        if (!enabled) return;
+        order.addAll(players);
+        order.sort(Comparator.comparing(ServerPlayerEntity::getUuid));
+        for (int i = 0; i < order.size(); i++) indices.put(order.get(i).getUuid(), i);
+        lastPositions = new double[order.size() * 5];
+        Arrays.fill(lastPositions, Double.NaN);
+        file = getDirectory().resolve(mapId.getNamespace() + "_" + mapId.getPath() + "_" + seed + "_" + LocalDateTime.now().format(FILE_TIME) + (replay != null ? "_replay" : "") + ".trace");
+        trace.append(HEADER).append(mapId).append(" seed ").append(seed).append(" players ").append(order.size());
+        endLine();
+        if (replay != null && replay.players != order.size()) {
+            DeathRun.LOG.warn("DeathRun trace was recorded with {} players but the replay has {}, it will diverge", replay.players, order.size());
+        }
+    }
+
+    public void recordButton(ServerPlayerEntity player, BlockPos pos) {
+        int index = enabled ? indices.getInt(player.getUuid()) : -1;
+        if (index < 0) return;
+        trace.append(ticks).append(" input button ").append(index).append(' ').append(pos.getX()).append(' ').append(pos.getY()).append(' ').append(pos.getZ());
+        endLine();
+    }
+
+    public void recordItem(ServerPlayerEntity player, Hand hand) {
+        int index = enabled ? indices.getInt(player.getUuid()) : -1;
+        if (index < 0) return;
+        trace.append(ticks).append(" input item ").append(index).append(' ').append(hand.name());
+        endLine();
+    }
+
+    /**
+     * Records player positions, or applies the replayed positions and inputs for this tick.
+     * Runs before anything else in the game's tick, so that it sees the positions the tick is evaluated with.
+     */
+    public void beginTick(BiConsumer<ServerPlayerEntity, Input> input) {
+        if (!enabled) return;
+        var actions = replay != null ? replay.actions.get(ticks) : null;
+        if (actions != null) {
+            for (var action : actions) {
+                if (action.player >= order.size()) continue;
+                var player = order.get(action.player);
+                if (player.isRemoved()) continue;
+                if (action instanceof Move move) {
+                    player.networkHandler.requestTeleport(move.x, move.y, move.z, move.yaw, move.pitch);
+                } else if (action instanceof Input in) {
+                    input.accept(player, in);
+                }
+            }
+        }
+        for (int i = 0; i < order.size(); i++) {
+            var player = order.get(i);
+            if (player.isRemoved()) continue;
+            int j = i * 5;
+            // Only changes are written, most players stand still most ticks
+            if (player.getX() == lastPositions[j] && player.getY() == lastPositions[j + 1] && player.getZ() == lastPositions[j + 2]
+                    && player.getYaw() == lastPositions[j + 3] && player.getPitch() == lastPositions[j + 4]) continue;
+            lastPositions[j] = player.getX();
+            lastPositions[j + 1] = player.getY();
+            lastPositions[j + 2] = player.getZ();
+            lastPositions[j + 3] = player.getYaw();
+            lastPositions[j + 4] = player.getPitch();
+            trace.append(ticks).append(" pos ").append(i).append(' ').append(player.getX()).append(' ').append(player.getY()).append(' ').append(player.getZ())
+                    .append(' ').append(player.getYaw()).append(' ').append(player.getPitch());
+            endLine();
+        }
+    }
+
+    public void tick(long stateHash) {
+        if (!enabled) return;
+        if (ticks % HASH_INTERVAL == 0) {
+            trace.append(ticks).append(" state ").append(Long.toHexString(stateHash));
+            endLine();
+        }
+        ticks++;
+    }
+
+    /**
+     * Writes the rest of the trace, must be called when the game closes
+     */
+    public void writeTrace() {
+        if (!enabled || file == null) return;
+        flush();
+        var written = file;
+        writes.thenRun(() -> DeathRun.LOG.info("Wrote DeathRun trace to {}", written));
+    }
+
+    private void endLine() {
+        trace.append('\n');
+        if (trace.length() >= FLUSH_CHARS) flush();
+    }
+
+    private void flush() {
+        // Lines before the players are numbered are kept until the file is known
+        if (file == null || trace.length() == 0) return;
+        var batch = trace.toString();
+        trace.setLength(0);
+        var target = file;
+        writes = writes.thenRunAsync(() -> {
+            try {
+                Files.createDirectories(target.getParent());
+                Files.writeString(target, batch, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            } catch (IOException e) {
+                DeathRun.LOG.error("Failed to write DeathRun trace", e);
+            }
+        }, Util.getIoWorkerExecutor());
+    }
+
+    public static Path getDirectory() {
+        return FabricLoader.getInstance().getGameDir().resolve(DeathRun.MOD_ID).resolve("traces");
+    }
+
+    /**
+     * Makes the next seeded game of the replay's map replay it, must be called on the server thread
+     */
+    public static void arm(Replay replay) {
+        armed = replay;
+    }
+
+    /**
+     * @return the first line where the traces differ, or null if they are identical
+     */
+    public static String findDivergence(Path a, Path b) throws IOException {
+        var linesA = Files.readAllLines(a);
+        var linesB = Files.readAllLines(b);
+        // The header names the file's own seed and map, so comparison starts after it
+        for (int i = 1; i < Math.max(linesA.size(), linesB.size()); i++) {
+            var lineA = i < linesA.size() ? linesA.get(i) : "<end>";
+            var lineB = i < linesB.size() ? linesB.get(i) : "<end>";
+            if (!lineA.equals(lineB)) return lineA + " | " + lineB;
+        }
+        return null;
+    }
+
+    public static abstract class Action {
+        public final int player;
+
+        private Action(int player) {
+            this.player = player;
+        }
+    }
+
+    public static final class Move extends Action {
+        public final double x, y, z;
+        public final float yaw, pitch;
+
+        private Move(int player, double x, double y, double z, float yaw, float pitch) {
+            super(player);
+            this.x = x;
+            this.y = y;
+            this.z = z;
+            this.yaw = yaw;
+            this.pitch = pitch;
+        }
+    }
+
+    public static final class Input extends Action {
+        public final String kind;
+        public final @Nullable BlockPos pos;
+        public final @Nullable Hand hand;
+
+        private Input(int player, String kind, @Nullable BlockPos pos, @Nullable Hand hand) {
+            super(player);
+            this.kind = kind;
+            this.pos = pos;
+            this.hand = hand;
+        }
+    }
+
+    public static final class Replay {
+        public final Identifier mapId;
+        public final long seed;
+        public final int players;
+        private final Int2ObjectOpenHashMap<List<Action>> actions = new Int2ObjectOpenHashMap<>();
+
+        private Replay(Identifier mapId, long seed, int players) {
+            this.mapId = mapId;
+            this.seed = seed;
+            this.players = players;
+        }
+
+        public static Replay read(Path file) throws IOException {
+            var lines = Files.readAllLines(file);
+            if (lines.isEmpty() || !lines.get(0).startsWith(HEADER)) throw new IOException("Not a DeathRun trace: " + file);
+            // # DeathRun trace for <map> seed <seed> players <count>
+            var header = lines.get(0).substring(HEADER.length()).split(" ");
+            if (header.length < 5) throw new IOException("Trace " + file + " was recorded without positions and cannot be replayed");
+            var replay = new Replay(new Identifier(header[0]), Long.parseLong(header[2]), Integer.parseInt(header[4]));
+            for (int i = 1; i < lines.size(); i++) {
+                var parts = lines.get(i).split(" ");
+                int tick = Integer.parseInt(parts[0]);
+                Action action = switch (parts[1]) {
+                    case "pos" -> new Move(Integer.parseInt(parts[2]), Double.parseDouble(parts[3]), Double.parseDouble(parts[4]), Double.parseDouble(parts[5]),
+                            Float.parseFloat(parts[6]), Float.parseFloat(parts[7]));
+                    case "input" -> switch (parts[2]) {
+                        case "button" -> new Input(Integer.parseInt(parts[3]), parts[2], new BlockPos(Integer.parseInt(parts[4]), Integer.parseInt(parts[5]), Integer.parseInt(parts[6])), null);
+                        case "item" -> new Input(Integer.parseInt(parts[3]), parts[2], null, Hand.valueOf(parts[4]));
+                        default -> null;
+                    };
+                    default -> null;
+                };
+                if (action != null) replay.actions.computeIfAbsent(tick, t -> new ArrayList<>()).add(action);
+            }
+            return replay;
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package io.github.foundationgames.deathrun.game.state.logic;
+
+import io.github.foundationgames.deathrun.DeathRun;
+import io.github.foundationgames.deathrun.game.state.DRTeam;
+import io.github.foundationgames.deathrun.game.state.DeathCause;
+import net.fabricmc.loader.api.FabricLoader;
+import net.minecraft.util.Identifier;
+import net.minecraft.util.math.BlockPos;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Analytics log of game events, shared by all games. The server thread is the only producer,
+ * and writes each event as a fixed number of longs into a preallocated ring buffer without
+ * locking or allocating. A background thread drains the ring into NDJSON files which are
+ * rotated by size. When the ring is full events are dropped and counted, never waited on.
+ * The writer polls while games are open, and stops once the last game closed and the ring
+ * is drained.
+ */
+public final class DREventLog {
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ss");
+    private static final int CAPACITY = 8192; // Power of two
+    private static final int RECORD = 6; // tick, type and game, player UUID, two values
+    private static final long MAX_FILE_BYTES = 16 * 1024 * 1024;
+    private static final long IDLE_PARK_NANOS = 50_000_000;
+
+    private static final long[] RING = new long[CAPACITY * RECORD];
+    // Next sequence to be written by the server thread, and next to be read by the writer
+    private static final AtomicLong HEAD = new AtomicLong();
+    private static final AtomicLong TAIL = new AtomicLong();
+    private static final AtomicLong DROPPED = new AtomicLong();
+    private static final AtomicInteger GAMES = new AtomicInteger();
+    private static final AtomicInteger OPEN_GAMES = new AtomicInteger();
+    private static final Map<Integer, Identifier> MAPS = new ConcurrentHashMap<>();
+
+    private static Thread writer;
+    private static int files = 0;
+
+    private DREventLog() {}
+
+    public enum Type {
+        OPEN, START, END, CLOSE, TEAM, TRAP_TRIGGER, TRAP_RESET, DEATH, CHECKPOINT, FINISH, LEAVE;
+
+        private static final Type[] VALUES = values();
+
+        private final String name = name().toLowerCase();
+    }
+
+    /**
+     * Starts logging events for a new game
+     *
+     * @return the id to log the game's events with
+     */
+    public static int open(Identifier mapId, long tick) {
+        synchronized (DREventLog.class) {
+            OPEN_GAMES.incrementAndGet();
+            if (writer == null) {
+                writer = new Thread(DREventLog::drain, "DeathRun Event Log");
+                writer.setDaemon(true);
+                writer.start();
+            }
+        }
+        int game = GAMES.incrementAndGet();
+        MAPS.put(game, mapId);
+        log(game, Type.OPEN, tick, null, 0, 0);
+        return game;
+    }
+
+    /**
+     * Stops logging events for a game, which must have been opened. Does nothing for a game id below 0.
+     */
+    public static void close(int game, long tick) {
+        if (game < 0) return;
+        // The map is otherwise let go of when the close event is written
+        if (!append(game, Type.CLOSE, tick, null, 0, 0)) MAPS.remove(game);
+        OPEN_GAMES.decrementAndGet();
+    }
+
+    /**
+     * Appends an event, must only be called from the server thread. Does nothing for a game id below 0.
+     */
+    public static void log(int game, Type type, long tick, @Nullable UUID player, long a, long b) {
+        if (game >= 0) append(game, type, tick, player, a, b);
+    }
+
+    private static boolean append(int game, Type type, long tick, @Nullable UUID player, long a, long b) {
+        long head = HEAD.get();
+        if (head - TAIL.get() >= CAPACITY) {
+            // Rare, and the writer adds the records of failed writes too
+            DROPPED.incrementAndGet();
+            return false;
+        }
+        int i = (int) (head & (CAPACITY - 1)) * RECORD;
+        RING[i] = tick;
+        RING[i + 1] = ((long) game << 8) | type.ordinal();
+        RING[i + 2] = player == null ? 0 : player.getMostSignificantBits();
+        RING[i + 3] = player == null ? 0 : player.getLeastSignificantBits();
+        RING[i + 4] = a;
+        RING[i + 5] = b;
+        // Publishes the record to the writer
+        HEAD.lazySet(head + 1);
+        return true;
+    }
+
+    public static long getDropped() {
+        return DROPPED.get();
+    }
+
+    private static void drain() {
+        var dir = FabricLoader.getInstance().getGameDir().resolve(DeathRun.MOD_ID).resolve("events");
+        BufferedWriter out = null;
+        long fileBytes = 0;
+        long reportedDrops = 0;
+        var line = new StringBuilder(160);
+        while (true) {
+            long tail = TAIL.get();
+            long head = HEAD.get();
+            if (tail == head) {
+                if (OPEN_GAMES.get() == 0) {
+                    synchronized (DREventLog.class) {
+                        // A game opened meanwhile starts no new writer while this one still runs
+                        if (OPEN_GAMES.get() == 0 && HEAD.get() == tail) {
+                            writer = null;
+                            closeQuietly(out);
+                            return;
+                        }
+                    }
+                }
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+                continue;
+            }
+            long batch = tail;
+            try {
+                if (out == null || fileBytes > MAX_FILE_BYTES) {
+                    if (out != null) out.close();
+                    out = open(dir);
+                    fileBytes = 0;
+                }
+                for (; tail < head; tail++) {
+                    line.setLength(0);
+                    format(line, (int) (tail & (CAPACITY - 1)) * RECORD);
+                    out.append(line).append('\n');
+                    fileBytes += line.length() + 1;
+                }
+                // Frees the drained records for the server thread
+                TAIL.lazySet(tail);
+                long drops = DROPPED.get();
+                if (drops != reportedDrops) {
+                    out.append("{\"event\":\"dropped\",\"count\":").append(Long.toString(drops - reportedDrops)).append("}\n");
+                    reportedDrops = drops;
+                }
+                out.flush();
+            } catch (IOException e) {
+                DeathRun.LOG.error("Failed to write DeathRun event log", e);
+                // The batch may be partly buffered in the failed writer, all of it counts as dropped
+                DROPPED.addAndGet(head - batch);
+                TAIL.lazySet(head);
+                closeQuietly(out);
+                out = null;
+            }
+        }
+    }
+
+    private static void closeQuietly(@Nullable BufferedWriter out) {
+        if (out == null) return;
+        try {
+            out.close();
+        } catch (IOException e) {
+            DeathRun.LOG.error("Failed to close DeathRun event log", e);
+        }
+    }
+
+    private static BufferedWriter open(Path dir) throws IOException {
+        Files.createDirectories(dir);
+        return Files.newBufferedWriter(dir.resolve("events_" + LocalDateTime.now().format(FILE_TIME) + "_" + files++ + ".ndjson"));
+    }
+
+    private static void format(StringBuilder line, int i) {
+        int game = (int) (RING[i + 1] >>> 8);
+        var type = Type.VALUES[(int) (RING[i + 1] & 0xff)];
+        long a = RING[i + 4];
+        long b = RING[i + 5];
+        line.append("{\"tick\":").append(RING[i])
+                .append(",\"game\":").append(game)
+                .append(",\"event\":\"").append(type.name).append('"');
+        if (RING[i + 2] != 0 || RING[i + 3] != 0) {
+            line.append(",\"player\":\"").append(new UUID(RING[i + 2], RING[i + 3])).append('"');
+        }
+        switch (type) {
+            case OPEN -> line.append(",\"map\":\"").append(MAPS.get(game)).append('"');
+            case END -> line.append(",\"finished\":").append(a);
+            case CLOSE -> line.append(",\"map\":\"").append(MAPS.remove(game)).append('"');
+            case TEAM -> line.append(",\"team\":\"").append(DRTeam.values()[(int) a].name().toLowerCase()).append('"');
+            case TRAP_TRIGGER, TRAP_RESET -> appendPos(line.append(",\"button\":"), a);
+            case DEATH -> appendPos(line.append(",\"cause\":\"").append(DeathCause.VALUES[(int) a].getName()).append("\",\"pos\":"), b);
+            case CHECKPOINT -> line.append(",\"checkpoint\":").append(a);
+            case FINISH -> line.append(",\"time\":").append(a).append(",\"place\":").append(b);
+            default -> {}
+        }
+        line.append('}');
+    }
+
+    private static void appendPos(StringBuilder line, long pos) {
+        line.append('[').append(BlockPos.unpackLongX(pos)).append(',').append(BlockPos.unpackLongY(pos)).append(',').append(BlockPos.unpackLongZ(pos)).append(']');
+    }
+}
@@ -0,0 +1,61 @@
+package io.github.foundationgames.deathrun.game.state.logic;
+
+import io.github.foundationgames.deathrun.game.map.DeathHeatmap;
+import net.minecraft.network.packet.s2c.play.ParticleS2CPacket;
+import net.minecraft.particle.DustParticleEffect;
+import net.minecraft.server.network.ServerPlayerEntity;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.Vec3f;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Shows a map's {@link DeathHeatmap} to admins who toggled it on, as dust particles colored
+ * from yellow to red by the number of deaths at each block. Costs nothing with no viewers.
+ */
+public class DRHeatmapOverlay {
+    private static final int UPDATE_INTERVAL = 10;
+    private static final double RANGE = 48;
+    private static final int MAX_PARTICLES = 512;
+
+    private final DeathHeatmap heatmap;
+    private final Set<ServerPlayerEntity> viewers = new HashSet<>();
+    private int ticks = 0;
+
+    public DRHeatmapOverlay(DeathHeatmap heatmap) {
+        this.heatmap = heatmap;
+    }
+
+    /**
+     * @return whether the player now sees the overlay
+     */
+    public boolean toggle(ServerPlayerEntity player) {
+        if (viewers.remove(player)) return false;
+        viewers.add(player);
+        return true;
+    }
+
+    public void tick() {
+        if (viewers.isEmpty()) return;
+        viewers.removeIf(ServerPlayerEntity::isRemoved);
+        if (++ticks % UPDATE_INTERVAL != 0) return;
+
+        float max = heatmap.getMaxCount();
+        if (max <= 0) return;
+        for (var viewer : viewers) {
+            int[] sent = {0};
+            heatmap.forEachCell(pos -> {
+                if (sent[0] >= MAX_PARTICLES) return;
+                double x = BlockPos.unpackLongX(pos) + 0.5;
+                double y = BlockPos.unpackLongY(pos) + 0.5;
+                double z = BlockPos.unpackLongZ(pos) + 0.5;
+                if (viewer.squaredDistanceTo(x, y, z) > RANGE * RANGE) return;
+                float heat = heatmap.getCount(pos) / max;
+                var color = new DustParticleEffect(new Vec3f(1, 1 - heat, 0), 1 + heat);
+                viewer.networkHandler.sendPacket(new ParticleS2CPacket(color, true, x, y, z, 0.2f, 0.2f, 0.2f, 0, 2));
+                sent[0]++;
+            });
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package io.github.foundationgames.deathrun.game.state.logic;
+
+import io.github.foundationgames.deathrun.game.element.MapText;
+import io.github.foundationgames.deathrun.util.DRUtil;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import net.minecraft.entity.EntityType;
+import net.minecraft.entity.decoration.ArmorStandEntity;
+import net.minecraft.network.packet.s2c.play.EntitiesDestroyS2CPacket;
+import net.minecraft.network.packet.s2c.play.EntityTrackerUpdateS2CPacket;
+import net.minecraft.network.packet.s2c.play.MobSpawnS2CPacket;
+import net.minecraft.server.network.ServerPlayerEntity;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.text.Text;
+import net.minecraft.util.math.MathHelper;
+import net.minecraft.util.math.Vec3d;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Shows map text as client-only armor stands, only to players within the view distance of
+ * each text. Every line has one entity id for the lifetime of the world which is reused each
+ * time a player comes into range, and lines can be given different text for each player.
+ */
+public class DRHologramLogic {
+    private static final int UPDATE_INTERVAL = 10;
+    private static final double LINE_SPACING = 0.35;
+    private static final byte MARKER_FLAG = 16;
+
+    private final ServerWorld world;
+    private final double viewDistanceSq;
+    private final ArmorStandEntity scratch;
+
+    // Per text
+    private final Vec3d[] anchors;
+    private final int[] firstLine;
+    private final int[] lineCount;
+    private final Map<String, Integer> keys = new HashMap<>();
+
+    // Per line
+    private final int[] ids;
+    private final UUID[] uuids;
+    private final Vec3d[] positions;
+    private final Text[] texts;
+
+    private final Map<ServerPlayerEntity, Viewer> viewers = new HashMap<>();
+    private int ticks = 0;
+
+    public DRHologramLogic(ServerWorld world, List<MapText> mapTexts, double viewDistance) {
+        this.world = world;
+        this.viewDistanceSq = viewDistance * viewDistance;
+        this.scratch = new ArmorStandEntity(EntityType.ARMOR_STAND, world);
+        scratch.setInvisible(true);
+        scratch.setCustomNameVisible(true);
+        scratch.getDataTracker().set(ArmorStandEntity.ARMOR_STAND_FLAGS, MARKER_FLAG);
+
+        int total = 0;
+        for (var mapText : mapTexts) total += mapText.text().lines().size();
+
+        this.anchors = new Vec3d[mapTexts.size()];
+        this.firstLine = new int[mapTexts.size()];
+        this.lineCount = new int[mapTexts.size()];
+        this.ids = new int[total];
+        this.uuids = new UUID[total];
+        this.positions = new Vec3d[total];
+        this.texts = new Text[total];
+
+        int firstId = DRUtil.nextEntityIds(total);
+        int line = 0;
+        for (int i = 0; i < mapTexts.size(); i++) {
+            var mapText = mapTexts.get(i);
+            var lines = mapText.text().lines();
+            anchors[i] = mapText.pos();
+            firstLine[i] = line;
+            lineCount[i] = lines.size();
+            int index = i;
+            mapText.text().key().ifPresent(key -> keys.put(key, index));
+
+            Vec3d pos = mapText.pos().add(0, (lines.size() * LINE_SPACING) * 0.5, 0);
+            for (var text : lines) {
+                ids[line] = firstId + line;
+                uuids[line] = MathHelper.randomUuid(world.random);
+                positions[line] = pos;
+                texts[line] = text;
+                pos = pos.add(0, -LINE_SPACING, 0);
+                line++;
+            }
+        }
+    }
+
+    /**
+     * Shows the player different text on a line of the map text with the given key,
+     * does nothing if the map has no such text
+     */
+    public void setText(ServerPlayerEntity player, String key, int lineIndex, Text text) {
+        var textIndex = keys.get(key);
+        if (textIndex == null || lineIndex < 0 || lineIndex >= lineCount[textIndex]) return;
+        int line = firstLine[textIndex] + lineIndex;
+        var viewer = viewers.computeIfAbsent(player, p -> new Viewer());
+        viewer.overrides.put(line, text);
+        if (viewer.shown.get(textIndex)) {
+            player.networkHandler.sendPacket(createNameUpdate(line, text));
+        }
+    }
+
+    public long estimateBytes() {
+        // Id, UUID, position and text per line, plus each viewer's shown bits and overrides
+        long bytes = ids.length * (4L + 32 + 40 + 64);
+        for (var viewer : viewers.values()) bytes += 64 + anchors.length / 8 + viewer.overrides.size() * 80L;
+        return bytes;
+    }
+
+    public void tick() {
+        if (anchors.length == 0 || ++ticks % UPDATE_INTERVAL != 0) return;
+
+        var players = world.getPlayers();
+        viewers.keySet().removeIf(player -> player.isRemoved() || player.getServerWorld() != world);
+        var removed = new IntArrayList();
+        for (var player : players) {
+            var viewer = viewers.computeIfAbsent(player, p -> new Viewer());
+            removed.clear();
+            for (int i = 0; i < anchors.length; i++) {
+                boolean inRange = player.squaredDistanceTo(anchors[i]) <= viewDistanceSq;
+                if (inRange == viewer.shown.get(i)) continue;
+                viewer.shown.set(i, inRange);
+                for (int line = firstLine[i]; line < firstLine[i] + lineCount[i]; line++) {
+                    if (inRange) {
+                        spawn(player, line, viewer.overrides.getOrDefault(line, texts[line]));
+                    } else {
+                        removed.add(ids[line]);
+                    }
+                }
+            }
+            if (!removed.isEmpty()) {
+                player.networkHandler.sendPacket(new EntitiesDestroyS2CPacket(removed.toIntArray()));
+            }
+        }
+    }
+
+    private void spawn(ServerPlayerEntity player, int line, Text text) {
+        var pos = positions[line];
+        scratch.setId(ids[line]);
+        scratch.setUuid(uuids[line]);
+        scratch.setPosition(pos.x, pos.y, pos.z);
+        player.networkHandler.sendPacket(new MobSpawnS2CPacket(scratch));
+        player.networkHandler.sendPacket(createNameUpdate(line, text));
+    }
+
+    private EntityTrackerUpdateS2CPacket createNameUpdate(int line, Text text) {
+        scratch.setCustomName(text);
+        return new EntityTrackerUpdateS2CPacket(ids[line], scratch.getDataTracker(), true);
+    }
+
+    private static class Viewer {
+        private final BitSet shown = new BitSet();
+        private final Int2ObjectOpenHashMap<Text> overrides = new Int2ObjectOpenHashMap<>();
+    }
+}
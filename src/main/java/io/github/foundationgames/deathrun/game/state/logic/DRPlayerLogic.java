@@ -27,9 +27,11 @@ public class DRPlayerLogic implements PlayerSet {
     private final DeathRunMap map;
     private final DeathRunConfig config;
     private final Map<ServerPlayerEntity, DRPlayer> players = new HashMap<>();
+    private final Random random;
 
-    public DRPlayerLogic(ServerWorld world, GameActivity game, DeathRunMap map, DeathRunConfig config) {
+    public DRPlayerLogic(ServerWorld world, GameActivity game, DeathRunMap map, DeathRunConfig config, Random random) {
         this.world = world;
+        this.random = random;
         this.game = game;
         this.map = map;
         this.config = config;
@@ -41,6 +43,8 @@ public class DRPlayerLogic implements PlayerSet {
 
     public List<DRPlayer> getPlayers(Random random) {
         var list = new ArrayList<>(getPlayers());
+        // Sorted first so the shuffle does not depend on hash order
+        list.sort(Comparator.comparing(player -> player.getPlayer().getUuid()));
         Collections.shuffle(list, random);
         return list;
     }
@@ -49,8 +53,8 @@ public class DRPlayerLogic implements PlayerSet {
         var spawn = map.spawn;
         var min = spawn.min();
         var max = spawn.max();
-        var x = min.getX() + world.random.nextInt(max.getX() - min.getX()) + 0.5;
-        var z = min.getZ() + world.random.nextInt(max.getZ() - min.getZ()) + 0.5;
+        var x = min.getX() + random.nextInt(max.getX() - min.getX()) + 0.5;
+        var z = min.getZ() + random.nextInt(max.getZ() - min.getZ()) + 0.5;
         player.teleport(world, x, min.getY(), z, 0f, 0f);
 
         var leaveItem = ItemStackBuilder.of(Items.MAGENTA_GLAZED_TERRACOTTA)
@@ -83,9 +87,15 @@ public class DRPlayerLogic implements PlayerSet {
     }
 
     public void resetActive(ServerPlayerEntity player) {
-        var pl = get(player);
+        teleportActive(player);
+        equipActive(player);
+    }
 
-        if (pl instanceof DRGame.Player gamePlayer) {
+    /**
+     * Moves a game player to their checkpoint, or their team's start
+     */
+    public void teleportActive(ServerPlayerEntity player) {
+        if (get(player) instanceof DRGame.Player gamePlayer) {
             var spawn = map.deathStart;
             float spawnYaw = 0;
             boolean randomPos = true;
@@ -103,15 +113,23 @@ public class DRPlayerLogic implements PlayerSet {
             if (randomPos) {
                 var min = spawn.min();
                 var max = spawn.max();
-                x = min.getX() + world.random.nextInt(max.getX() - min.getX()) + 0.5;
-                z = min.getZ() + world.random.nextInt(max.getZ() - min.getZ()) + 0.5;
+                x = min.getX() + random.nextInt(max.getX() - min.getX()) + 0.5;
+                z = min.getZ() + random.nextInt(max.getZ() - min.getZ()) + 0.5;
             } else {
                 var center = spawn.center();
                 x = center.x;
                 z = center.z;
             }
             player.teleport(world, x, spawn.min().getY(), z, spawnYaw, 0f);
-            pl.getPlayer().getInventory().clear();
+        }
+    }
+
+    /**
+     * Replaces a game player's inventory with their team's items
+     */
+    public void equipActive(ServerPlayerEntity player) {
+        if (get(player) instanceof DRGame.Player gamePlayer) {
+            player.getInventory().clear();
             if (gamePlayer.team == DRTeam.RUNNERS && !gamePlayer.isFinished()) {
                 var boostItem = ItemStackBuilder.of(Items.FEATHER)
                         .setName(new TranslatableText("item.deathrun.boost_feather").styled(style -> style.withColor(0x9ce3ff).withItalic(false))).build();
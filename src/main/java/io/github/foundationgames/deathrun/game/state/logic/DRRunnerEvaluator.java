@@ -0,0 +1,99 @@
+package io.github.foundationgames.deathrun.game.state.logic;
+
+import io.github.foundationgames.deathrun.game.state.DRGame;
+import io.github.foundationgames.deathrun.game.state.DRTeam;
+import io.github.foundationgames.deathrun.game.state.DeathCause;
+import net.minecraft.util.math.BlockPos;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Ticks a game's players in {@link DRRunnerStore} slot order. Above a configured player
+ * count, the server thread captures runner bounding boxes into flat arrays, the decisions
+ * that only depend on the snapshot are made across the common ForkJoin pool, and the
+ * results are applied back on the server thread in the same order as serial ticking.
+ */
+public class DRRunnerEvaluator {
+    private final DRGame game;
+    private final DRRunnerStore store;
+    private final int threshold;
+
+    private double[] box = new double[0];
+    private boolean[] runner = new boolean[0];
+    private DeathCause[] death = new DeathCause[0];
+    private int[] checkpoint = new int[0];
+    private boolean[] inFinish = new boolean[0];
+
+    public DRRunnerEvaluator(DRGame game, int threshold) {
+        this.game = game;
+        this.store = game.runners;
+        this.threshold = threshold;
+    }
+
+    public void tick() {
+        store.capturePositions();
+        store.tickTimers();
+        game.lod.update(store);
+
+        int size = store.size();
+        if (threshold <= 0 || game.players.size() < threshold) {
+            for (int i = 0; i < size; i++) {
+                var player = store.get(i);
+                if (player != null) player.tick();
+            }
+            return;
+        }
+
+        ensureCapacity(size);
+        for (int i = 0; i < size; i++) {
+            var player = store.get(i);
+            runner[i] = player != null && player.team == DRTeam.RUNNERS;
+            if (runner[i]) {
+                var bb = player.getPlayer().getBoundingBox();
+                int b = i * 6;
+                box[b] = bb.minX;
+                box[b + 1] = bb.minY;
+                box[b + 2] = bb.minZ;
+                box[b + 3] = bb.maxX;
+                box[b + 4] = bb.maxY;
+                box[b + 5] = bb.maxZ;
+            }
+        }
+
+        IntStream.range(0, size).parallel().forEach(this::evaluate);
+
+        for (int i = 0; i < size; i++) {
+            var player = store.get(i);
+            if (player != null) {
+                player.tick(BlockPos.fromLong(store.getBlockPos(i)), death[i], checkpoint[i], inFinish[i]);
+            }
+        }
+    }
+
+    private void evaluate(int i) {
+        if (!runner[i]) {
+            death[i] = null;
+            checkpoint[i] = -1;
+            inFinish[i] = false;
+            return;
+        }
+        long pos = store.getBlockPos(i);
+        int x = BlockPos.unpackLongX(pos);
+        int y = BlockPos.unpackLongY(pos);
+        int z = BlockPos.unpackLongZ(pos);
+        int b = i * 6;
+        death[i] = game.getSnapshotDeath(store.get(i), box[b], box[b + 1], box[b + 2], box[b + 3], box[b + 4], box[b + 5]);
+        checkpoint[i] = game.map.getCheckpointIndex(x, y, z);
+        inFinish[i] = game.map.finish.contains(x, y, z);
+    }
+
+    private void ensureCapacity(int size) {
+        if (runner.length >= size) return;
+        box = Arrays.copyOf(box, size * 6);
+        runner = Arrays.copyOf(runner, size);
+        death = Arrays.copyOf(death, size);
+        checkpoint = Arrays.copyOf(checkpoint, size);
+        inFinish = Arrays.copyOf(inFinish, size);
+    }
+}
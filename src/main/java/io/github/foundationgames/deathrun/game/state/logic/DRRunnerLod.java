@@ -0,0 +1,143 @@
+package io.github.foundationgames.deathrun.game.state.logic;
+
+import io.github.foundationgames.deathrun.game.state.DRGame;
+import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
+import net.minecraft.entity.Entity;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.Box;
+import xyz.nucleoid.map_templates.BlockBounds;
+
+import java.util.Arrays;
+
+/**
+ * Lowers how often the expensive death checks run for runners far from any trap while the
+ * server is overloaded. Every second the level is chosen from the server's average MSPT, and
+ * at level n a runner outside every trap zone's surroundings and away from falling hazards and
+ * live entities of a lethal type only gets the world entity checks and falling hazard checks
+ * every 2^n ticks, spread over slots. Nearness is decided every tick, and no lethal entity moves
+ * fast enough to reach a runner from outside the range within one tick. Lethal entities are only
+ * looked up around the trap zones and among the entities traps spawned, never across the whole
+ * world, so a stray one elsewhere is found on the runner's next full tick. Void, hazard zone and
+ * lethal block deaths, virtual arrow hits, checkpoints, the finish and effect zones are always
+ * checked every tick.
+ */
+public class DRRunnerLod {
+    public static final int MAX_LEVEL = 3;
+
+    private static final int UPDATE_INTERVAL = 20;
+    private static final double NEAR_RANGE = 8;
+    // Average MSPT at which each level is entered, a level is left below its threshold minus the hysteresis
+    private static final float[] THRESHOLDS = {0, 40, 47, 55};
+    private static final float HYSTERESIS = 3;
+    private static final String[] LEVEL_COUNTERS = {"lod_ticks_level_0", "lod_ticks_level_1", "lod_ticks_level_2", "lod_ticks_level_3"};
+
+    private final DRGame game;
+    private final boolean enabled;
+    private final double[] hot;
+    // Where lethal entities are looked up, the surroundings expanded by the range once more
+    private final Box[] search;
+    // Positions of live lethal entities this tick, as x, y and z
+    private final DoubleArrayList entities = new DoubleArrayList();
+
+    private boolean[] full = new boolean[16];
+    private int level = 0;
+    private int ticks = 0;
+    private long skipped = 0;
+
+    public DRRunnerLod(DRGame game, boolean enabled) {
+        this.game = game;
+        this.enabled = enabled;
+
+        // Trap zones and their surroundings, as min and max corners
+        var zones = game.map.trapZones.values();
+        this.hot = new double[zones.size() * 6];
+        this.search = new Box[zones.size()];
+        int i = 0;
+        for (var zone : zones) {
+            BlockBounds bounds = zone.getZone();
+            hot[i] = bounds.min().getX() - NEAR_RANGE;
+            hot[i + 1] = bounds.min().getY() - NEAR_RANGE;
+            hot[i + 2] = bounds.min().getZ() - NEAR_RANGE;
+            hot[i + 3] = bounds.max().getX() + 1 + NEAR_RANGE;
+            hot[i + 4] = bounds.max().getY() + 1 + NEAR_RANGE;
+            hot[i + 5] = bounds.max().getZ() + 1 + NEAR_RANGE;
+            search[i / 6] = new Box(hot[i], hot[i + 1], hot[i + 2], hot[i + 3], hot[i + 4], hot[i + 5]).expand(NEAR_RANGE);
+            i += 6;
+        }
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    public long getSkipped() {
+        return skipped;
+    }
+
+    /**
+     * Decides which runners get the full checks this tick, from the positions captured
+     * into the runner store. Must run on the server thread before the runners are evaluated.
+     */
+    public void update(DRRunnerStore store) {
+        if (!enabled) return;
+        if (++ticks % UPDATE_INTERVAL == 0) updateLevel();
+        game.metrics.count(LEVEL_COUNTERS[level], 1);
+
+        if (level > 0) collectEntities();
+        int size = store.size();
+        if (full.length < size) full = Arrays.copyOf(full, Math.max(size, full.length * 2));
+        int interval = 1 << level;
+        for (int slot = 0; slot < size; slot++) {
+            if (level == 0 || (ticks + slot) % interval == 0 || store.get(slot) == null) {
+                full[slot] = true;
+                continue;
+            }
+            long pos = store.getBlockPos(slot);
+            full[slot] = isNear(BlockPos.unpackLongX(pos) + 0.5, BlockPos.unpackLongY(pos), BlockPos.unpackLongZ(pos) + 0.5);
+            if (!full[slot]) skipped++;
+        }
+    }
+
+    /**
+     * @return whether the runner in the slot gets the expensive checks this tick
+     */
+    public boolean isFull(int slot) {
+        return !enabled || level == 0 || slot >= full.length || full[slot];
+    }
+
+    public void report(DRTickMetrics metrics) {
+        if (enabled) metrics.count("lod_checks_skipped", skipped);
+    }
+
+    private boolean isNear(double x, double y, double z) {
+        for (int i = 0; i < hot.length; i += 6) {
+            if (x >= hot[i] && y >= hot[i + 1] && z >= hot[i + 2] && x < hot[i + 3] && y < hot[i + 4] && z < hot[i + 5]) return true;
+        }
+        for (int i = 0; i < entities.size(); i += 3) {
+            if (Math.abs(x - entities.getDouble(i)) < NEAR_RANGE && Math.abs(y - entities.getDouble(i + 1)) < NEAR_RANGE && Math.abs(z - entities.getDouble(i + 2)) < NEAR_RANGE) return true;
+        }
+        return game.hazards.isNear(x, y, z, NEAR_RANGE);
+    }
+
+    // Real arrows fly past the trap zones, and maps may declare lethal entities spawned by other means
+    private void collectEntities() {
+        entities.clear();
+        var rules = game.map.hazards;
+        for (var box : search) rules.forEachLethal(game.world, box, this::addEntity);
+        game.entities.forEachEntity(entity -> {
+            if (rules.isLethalType(entity)) addEntity(entity);
+        });
+    }
+
+    private void addEntity(Entity entity) {
+        entities.add(entity.getX());
+        entities.add(entity.getY());
+        entities.add(entity.getZ());
+    }
+
+    private void updateLevel() {
+        float mspt = game.world.getServer().getTickTime();
+        while (level < MAX_LEVEL && mspt >= THRESHOLDS[level + 1]) level++;
+        while (level > 0 && mspt < THRESHOLDS[level] - HYSTERESIS) level--;
+    }
+}
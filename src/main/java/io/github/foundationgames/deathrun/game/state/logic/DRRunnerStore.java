@@ -0,0 +1,156 @@
+package io.github.foundationgames.deathrun.game.state.logic;
+
+import io.github.foundationgames.deathrun.game.state.DRGame;
+import io.github.foundationgames.deathrun.game.state.DRTeam;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * Dense per-player game state, stored as parallel primitive arrays indexed by a
+ * slot id that stays stable for as long as the player is in the game.
+ * {@link DRGame.Player} is a view over one slot.
+ */
+public class DRRunnerStore {
+    private static final byte STARTED = 1;
+    private static final byte FINISHED = 1 << 1;
+
+    private final IntArrayList free = new IntArrayList();
+    private int size = 0;
+
+    private DRGame.Player[] players = new DRGame.Player[16];
+    private byte[] team = new byte[16];
+    private byte[] flags = new byte[16];
+    private int[] time = new int[16];
+    private int[] checkpoint = new int[16];
+    private long[] blockPos = new long[16];
+
+    public int allocate(DRGame.Player player, DRTeam playerTeam) {
+        int slot;
+        if (!free.isEmpty()) {
+            slot = free.removeInt(free.size() - 1);
+        } else {
+            if (size == players.length) grow();
+            slot = size++;
+        }
+        players[slot] = player;
+        team[slot] = (byte) playerTeam.ordinal();
+        flags[slot] = 0;
+        time[slot] = 0;
+        checkpoint[slot] = -1;
+        blockPos[slot] = 0;
+        return slot;
+    }
+
+    public void release(int slot) {
+        players[slot] = null;
+        flags[slot] = 0;
+        free.add(slot);
+    }
+
+    public long estimateBytes() {
+        // Player reference, team, flags, time, checkpoint and position per slot
+        return players.length * (4L + 1 + 1 + 4 + 4 + 8) + free.size() * 4L;
+    }
+
+    /**
+     * @return one past the highest slot in use, slots below this may be empty
+     */
+    public int size() {
+        return size;
+    }
+
+    public @Nullable DRGame.Player get(int slot) {
+        return players[slot];
+    }
+
+    public boolean isStarted(int slot) {
+        return (flags[slot] & STARTED) != 0;
+    }
+
+    public void setStarted(int slot) {
+        flags[slot] |= STARTED;
+    }
+
+    public boolean isFinished(int slot) {
+        return (flags[slot] & FINISHED) != 0;
+    }
+
+    public void setFinished(int slot) {
+        flags[slot] |= FINISHED;
+    }
+
+    public byte getTeam(int slot) {
+        return team[slot];
+    }
+
+    public byte getFlags(int slot) {
+        return flags[slot];
+    }
+
+    /**
+     * Restores progress saved by an interrupted game, the runner has not started yet
+     */
+    public void restore(int slot, byte savedFlags, int savedCheckpoint, int savedTime) {
+        flags[slot] = (byte) (savedFlags & FINISHED);
+        checkpoint[slot] = savedCheckpoint;
+        time[slot] = savedTime;
+    }
+
+    public int getTime(int slot) {
+        return time[slot];
+    }
+
+    public int getCheckpoint(int slot) {
+        return checkpoint[slot];
+    }
+
+    public void setCheckpoint(int slot, int index) {
+        checkpoint[slot] = index;
+    }
+
+    public long getBlockPos(int slot) {
+        return blockPos[slot];
+    }
+
+    /**
+     * @return a hash of every runner's position, time, checkpoint and progress, in slot order
+     */
+    public long stateHash() {
+        long hash = size;
+        for (int i = 0; i < size; i++) {
+            if (players[i] == null) continue;
+            hash = hash * 31 + blockPos[i];
+            hash = hash * 31 + time[i];
+            hash = hash * 31 + checkpoint[i];
+            hash = hash * 31 + flags[i];
+        }
+        return hash;
+    }
+
+    public void capturePositions() {
+        for (int i = 0; i < size; i++) {
+            var player = players[i];
+            if (player != null) blockPos[i] = player.getPlayer().getBlockPos().asLong();
+        }
+    }
+
+    public void tickTimers() {
+        byte runners = (byte) DRTeam.RUNNERS.ordinal();
+        for (int i = 0; i < size; i++) {
+            // Other flags may be set alongside, only started and finished decide the timer
+            if ((flags[i] & (STARTED | FINISHED)) == STARTED && team[i] == runners) time[i]++;
+        }
+    }
+
+    private void grow() {
+        int cap = players.length * 2;
+        players = Arrays.copyOf(players, cap);
+        team = Arrays.copyOf(team, cap);
+        flags = Arrays.copyOf(flags, cap);
+        time = Arrays.copyOf(time, cap);
+        checkpoint = Arrays.copyOf(checkpoint, cap);
+        blockPos = Arrays.copyOf(blockPos, cap);
+    }
+}
@@ -0,0 +1,336 @@
+package io.github.foundationgames.deathrun.game.state.logic;
+
+import io.github.foundationgames.deathrun.DeathRun;
+import io.github.foundationgames.deathrun.game.state.DRGame;
+import io.github.foundationgames.deathrun.game.state.DRTeam;
+import net.fabricmc.loader.api.FabricLoader;
+import net.minecraft.util.Identifier;
+import net.minecraft.util.Util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Write-ahead log of runner progress, so a match interrupted by a crash or restart can be
+ * resumed. Once a second, the slots of the {@link DRRunnerStore} that changed since the last
+ * snapshot are appended to an in-memory buffer on the server thread, and the buffer is
+ * handed to the IO worker to be appended to the game's log file. A running timer is written
+ * with the log tick it was read at, and only again once it stops or skips, the time at the
+ * last written tick is derived on restore. A log is deleted when its
+ * game finishes normally, and logs left behind are restored into the next game of the map,
+ * unless they were last written too long ago for their players to still be waiting to resume.
+ */
+public class DRSnapshotLog {
+    private static final int MAGIC = 0x4452534c;
+    private static final int VERSION = 2;
+    private static final int INTERVAL = 20;
+    private static final long MAX_AGE_MILLIS = 15 * 60 * 1000; // 15 minutes
+
+    private static final byte ASSIGN = 0;
+    private static final byte STATE = 1;
+    private static final byte FINISH = 2;
+    private static final byte TICK = 3;
+
+    // Logs of running games, which must not be recovered by another game of the same map
+    private static final Set<Path> LIVE = ConcurrentHashMap.newKeySet();
+
+    private final DRRunnerStore runners;
+    private final boolean enabled;
+    private final Path file;
+
+    // Last written state per slot
+    private DRGame.Player[] writtenPlayers = new DRGame.Player[0];
+    private byte[] writtenFlags = new byte[0];
+    private int[] writtenCheckpoints = new int[0];
+    private int[] writtenTimes = new int[0];
+    private int[] writtenTicks = new int[0];
+    private boolean[] writtenRunning = new boolean[0];
+
+    private ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    private DataOutputStream out = new DataOutputStream(buffer);
+    private CompletableFuture<Void> writes;
+    private int ticks = 0;
+    private long bytesWritten = 0;
+
+    /**
+     * @param after completes once old logs of the map have been read, the new log is only created after
+     */
+    public DRSnapshotLog(DRRunnerStore runners, boolean enabled, Identifier mapId, Identifier worldId, CompletableFuture<?> after) {
+        this.runners = runners;
+        this.enabled = enabled;
+        // Two games of a map may open within the same millisecond, their worlds differ
+        this.file = getDirectory(mapId).resolve(System.currentTimeMillis() + "_" + worldId.getNamespace() + "_" + worldId.getPath().replace('/', '_') + ".wal");
+        if (!enabled) {
+            this.writes = CompletableFuture.completedFuture(null);
+            return;
+        }
+        LIVE.add(file);
+        var header = new ByteArrayOutputStream();
+        try (var headerOut = new DataOutputStream(header)) {
+            headerOut.writeInt(MAGIC);
+            headerOut.writeInt(VERSION);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        this.writes = after.handle((result, error) -> null).thenRunAsync(() -> append(header.toByteArray(), true), Util.getIoWorkerExecutor());
+    }
+
+    public void tick() {
+        if (!enabled || ++ticks % INTERVAL != 0) return;
+        try {
+            writeChanges();
+        } catch (IOException e) {
+            DeathRun.LOG.error("Failed to buffer DeathRun snapshot", e);
+        }
+        flush();
+    }
+
+    /**
+     * Records the runner's finish, the order of these is the order of the placements
+     */
+    public void recordFinish(int slot) {
+        if (!enabled) return;
+        try {
+            out.writeByte(FINISH);
+            out.writeShort(slot);
+        } catch (IOException e) {
+            DeathRun.LOG.error("Failed to buffer DeathRun snapshot", e);
+        }
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    /**
+     * Writes what is buffered, then deletes the log if the game finished normally or never had runners to restore
+     */
+    public void close(boolean finished) {
+        if (!enabled) return;
+        if (!finished) {
+            try {
+                writeChanges();
+            } catch (IOException e) {
+                DeathRun.LOG.error("Failed to buffer DeathRun snapshot", e);
+            }
+            flush();
+        }
+        if (finished || bytesWritten == 0) {
+            writes = writes.thenRunAsync(() -> delete(List.of(file)), Util.getIoWorkerExecutor());
+        }
+        writes.thenRun(() -> LIVE.remove(file));
+    }
+
+    private void writeChanges() throws IOException {
+        int size = runners.size();
+        if (writtenPlayers.length < size) {
+            int cap = Math.max(size, writtenPlayers.length * 2);
+            writtenPlayers = Arrays.copyOf(writtenPlayers, cap);
+            writtenFlags = Arrays.copyOf(writtenFlags, cap);
+            writtenCheckpoints = Arrays.copyOf(writtenCheckpoints, cap);
+            writtenTimes = Arrays.copyOf(writtenTimes, cap);
+            writtenTicks = Arrays.copyOf(writtenTicks, cap);
+            writtenRunning = Arrays.copyOf(writtenRunning, cap);
+        }
+        boolean any = false;
+        byte runnerTeam = (byte) DRTeam.RUNNERS.ordinal();
+        for (int slot = 0; slot < size; slot++) {
+            var player = runners.get(slot);
+            if (player == null) continue;
+            // A slot given to a new player is written in full
+            boolean assigned = writtenPlayers[slot] != player;
+            if (assigned) {
+                var uuid = player.getPlayer().getUuid();
+                out.writeByte(ASSIGN);
+                out.writeShort(slot);
+                out.writeLong(uuid.getMostSignificantBits());
+                out.writeLong(uuid.getLeastSignificantBits());
+                out.writeByte(runners.getTeam(slot));
+                writtenPlayers[slot] = player;
+            }
+            byte flags = runners.getFlags(slot);
+            int checkpoint = runners.getCheckpoint(slot);
+            int time = runners.getTime(slot);
+            // The time restore derives from the last written state
+            int expected = writtenTimes[slot] + (writtenRunning[slot] ? ticks - writtenTicks[slot] : 0);
+            if (assigned || flags != writtenFlags[slot] || checkpoint != writtenCheckpoints[slot] || time != expected) {
+                boolean running = runners.isStarted(slot) && !runners.isFinished(slot) && runners.getTeam(slot) == runnerTeam;
+                out.writeByte(STATE);
+                out.writeShort(slot);
+                out.writeByte(flags);
+                out.writeShort(checkpoint);
+                out.writeInt(time);
+                out.writeInt(ticks);
+                out.writeBoolean(running);
+                writtenFlags[slot] = flags;
+                writtenCheckpoints[slot] = checkpoint;
+                writtenTimes[slot] = time;
+                writtenTicks[slot] = ticks;
+                writtenRunning[slot] = running;
+            }
+            any |= writtenRunning[slot];
+        }
+        // Running timers are advanced up to here on restore
+        if (any) {
+            out.writeByte(TICK);
+            out.writeInt(ticks);
+        }
+    }
+
+    private void flush() {
+        if (buffer.size() == 0) return;
+        var bytes = buffer.toByteArray();
+        buffer = new ByteArrayOutputStream(bytes.length);
+        out = new DataOutputStream(buffer);
+        bytesWritten += bytes.length;
+        // Chained so appends reach the file in order
+        writes = writes.thenRunAsync(() -> append(bytes, false), Util.getIoWorkerExecutor());
+    }
+
+    private void append(byte[] bytes, boolean create) {
+        try {
+            Files.createDirectories(file.getParent());
+            if (create) {
+                Files.write(file, bytes, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+            } else {
+                Files.write(file, bytes, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            }
+        } catch (IOException e) {
+            DeathRun.LOG.error("Failed to write DeathRun snapshot log {}", file, e);
+        }
+    }
+
+    /**
+     * Reads the logs left behind by interrupted games of a map in the background
+     */
+    public static CompletableFuture<Recovered> recover(Identifier mapId) {
+        var dir = getDirectory(mapId);
+        return CompletableFuture.supplyAsync(() -> {
+            if (!Files.isDirectory(dir)) return Recovered.EMPTY;
+            var files = new ArrayList<Path>();
+            var stale = new ArrayList<Path>();
+            long cutoff = System.currentTimeMillis() - MAX_AGE_MILLIS;
+            try (var list = Files.list(dir)) {
+                for (var path : list.filter(path -> path.toString().endsWith(".wal") && !LIVE.contains(path)).sorted().toList()) {
+                    (Files.getLastModifiedTime(path).toMillis() < cutoff ? stale : files).add(path);
+                }
+            } catch (IOException e) {
+                DeathRun.LOG.error("Failed to list DeathRun snapshot logs in {}", dir, e);
+                return Recovered.EMPTY;
+            }
+            if (!stale.isEmpty()) {
+                DeathRun.LOG.info("Deleting {} DeathRun snapshot logs of {} too old to restore", stale.size(), mapId);
+                delete(stale);
+            }
+            var runners = new HashMap<UUID, Runner>();
+            var finished = new LinkedHashSet<UUID>();
+            for (var file : files) read(file, runners, finished);
+            if (!runners.isEmpty()) DeathRun.LOG.info("Recovered {} runners of an interrupted DeathRun game on {}", runners.size(), mapId);
+            return new Recovered(files, runners, new ArrayList<>(finished));
+        }, Util.getIoWorkerExecutor());
+    }
+
+    private static void read(Path file, Map<UUID, Runner> runners, Set<UUID> finished) {
+        var slots = new HashMap<Integer, UUID>();
+        // Log tick each running timer was written at
+        var running = new HashMap<UUID, Integer>();
+        int lastTick = 0;
+        try (var in = new DataInputStream(Files.newInputStream(file))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                DeathRun.LOG.warn("Ignoring unrecognized DeathRun snapshot log {}", file);
+                return;
+            }
+            read: while (true) {
+                byte type = in.readByte();
+                switch (type) {
+                    case ASSIGN -> {
+                        int slot = in.readShort();
+                        var uuid = new UUID(in.readLong(), in.readLong());
+                        slots.put(slot, uuid);
+                        runners.put(uuid, new Runner(in.readByte(), (byte) 0, -1, 0));
+                        running.remove(uuid);
+                    }
+                    case STATE -> {
+                        int slot = in.readShort();
+                        byte flags = in.readByte();
+                        int checkpoint = in.readShort();
+                        int time = in.readInt();
+                        int tick = in.readInt();
+                        boolean timing = in.readBoolean();
+                        lastTick = Math.max(lastTick, tick);
+                        var uuid = slots.get(slot);
+                        if (uuid == null) continue;
+                        runners.put(uuid, new Runner(runners.get(uuid).team(), flags, checkpoint, time));
+                        if (timing) running.put(uuid, tick);
+                        else running.remove(uuid);
+                    }
+                    case FINISH -> {
+                        var uuid = slots.get((int) in.readShort());
+                        if (uuid != null) finished.add(uuid);
+                    }
+                    case TICK -> lastTick = Math.max(lastTick, in.readInt());
+                    default -> {
+                        DeathRun.LOG.warn("Stopped reading corrupt DeathRun snapshot log {}", file);
+                        break read;
+                    }
+                }
+            }
+        } catch (EOFException e) {
+            // The end of the log, possibly cut short by the crash
+        } catch (IOException e) {
+            DeathRun.LOG.error("Failed to read DeathRun snapshot log {}", file, e);
+            return;
+        }
+        for (var entry : running.entrySet()) {
+            var runner = runners.get(entry.getKey());
+            runners.put(entry.getKey(), new Runner(runner.team(), runner.flags(), runner.checkpoint(), runner.time() + lastTick - entry.getValue()));
+        }
+    }
+
+    private static void delete(List<Path> files) {
+        for (var file : files) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                DeathRun.LOG.error("Failed to delete DeathRun snapshot log {}", file, e);
+            }
+        }
+    }
+
+    private static Path getDirectory(Identifier mapId) {
+        return FabricLoader.getInstance().getGameDir().resolve(DeathRun.MOD_ID).resolve("snapshots")
+                .resolve(mapId.getNamespace() + "_" + mapId.getPath());
+    }
+
+    public record Runner(byte team, byte flags, int checkpoint, int time) {}
+
+    /**
+     * Runner progress read from interrupted games, with finished runners in placement order
+     */
+    public record Recovered(List<Path> files, Map<UUID, Runner> runners, List<UUID> finished) {
+        public static final Recovered EMPTY = new Recovered(List.of(), Map.of(), List.of());
+
+        /**
+         * Deletes the logs once their progress has been restored, so it is only restored once
+         */
+        public void discard() {
+            if (!files.isEmpty()) Util.getIoWorkerExecutor().execute(() -> delete(files));
+        }
+    }
+}
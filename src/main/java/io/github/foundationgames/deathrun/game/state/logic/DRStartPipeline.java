@@ -0,0 +1,68 @@
+package io.github.foundationgames.deathrun.game.state.logic;
+
+import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
+import net.minecraft.server.network.ServerPlayerEntity;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+
+/**
+ * Places players at their start positions in fixed-size batches spread over the start
+ * countdown, so teleports and the chunk sends they cause do not all land in one tick. Everyone
+ * is given their game items in the first tick, since the waiting items stop working once the
+ * game has started. Anyone still waiting is placed by {@link #flush()} before the gate opens.
+ * Runners still waiting stand in the lobby, so the game skips their runner checks until placed.
+ */
+public class DRStartPipeline {
+    // Leaves the last second of the countdown free, so the final batch is not next to the gate opening
+    private static final int END_MARGIN = 20;
+
+    private final DRPlayerLogic players;
+    private final ArrayDeque<ServerPlayerEntity> pending = new ArrayDeque<>();
+    private final ObjectOpenHashSet<ServerPlayerEntity> waiting = new ObjectOpenHashSet<>();
+    private final int batchSize;
+    private final int interval;
+    private int ticks = 0;
+
+    public DRStartPipeline(DRPlayerLogic players, int batchSize, int countdown) {
+        this.players = players;
+        var sorted = new ArrayList<ServerPlayerEntity>();
+        players.forEach(sorted::add);
+        // Sorted so the order of spawn position rolls does not depend on hash order
+        sorted.sort(Comparator.comparing(ServerPlayerEntity::getUuid));
+        pending.addAll(sorted);
+        waiting.addAll(sorted);
+        this.batchSize = batchSize > 0 ? batchSize : Math.max(1, pending.size());
+        int batches = (pending.size() + this.batchSize - 1) / this.batchSize;
+        this.interval = Math.max(1, (countdown - END_MARGIN) / Math.max(1, batches));
+    }
+
+    public void tick() {
+        if (ticks == 0) {
+            for (var player : pending) players.equipActive(player);
+        }
+        if (pending.isEmpty()) return;
+        if (ticks++ % interval == 0) run(batchSize);
+    }
+
+    /**
+     * @return whether the player has not been placed at their start position yet
+     */
+    public boolean isWaiting(ServerPlayerEntity player) {
+        return waiting.contains(player);
+    }
+
+    public void flush() {
+        run(pending.size());
+    }
+
+    private void run(int count) {
+        for (int i = 0; i < count && !pending.isEmpty(); i++) {
+            var player = pending.poll();
+            waiting.remove(player);
+            // Players who left during the countdown are skipped
+            if (players.get(player) != null) players.teleportActive(player);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package io.github.foundationgames.deathrun.game.state.logic;
+
+import io.github.foundationgames.deathrun.DeathRun;
+import net.fabricmc.loader.api.FabricLoader;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.util.Identifier;
+import net.minecraft.util.Util;
+import xyz.nucleoid.plasmid.game.event.GameActivityEvents;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Records server MSPT and per-phase tick time and allocation for a single game,
+ * and writes a plain text report when the game closes. Disabled games pay nothing.
+ */
+public class DRTickMetrics {
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ss");
+
+    private final boolean enabled;
+    private final MinecraftServer server;
+    private final Identifier mapId;
+    private final List<Phase> phases = new ArrayList<>();
+    private final Map<String, Long> counters = new LinkedHashMap<>();
+    private final com.sun.management.ThreadMXBean threads;
+
+    private long ticks = 0;
+    private double msptTotal = 0;
+    private float msptMax = 0;
+
+    public DRTickMetrics(boolean enabled, MinecraftServer server, Identifier mapId) {
+        this.enabled = enabled;
+        this.server = server;
+        this.mapId = mapId;
+        this.threads = enabled && ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean && bean.isThreadAllocatedMemorySupported() ? bean : null;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Wraps a tick listener so its time and allocations are recorded under the given phase name
+     */
+    public GameActivityEvents.Tick timed(String name, Runnable tick) {
+        if (!enabled) return tick::run;
+        var phase = new Phase(name);
+        phases.add(phase);
+        return () -> {
+            long alloc = allocated();
+            long start = System.nanoTime();
+            tick.run();
+            long time = System.nanoTime() - start;
+            phase.nanos += time;
+            phase.maxNanos = Math.max(phase.maxNanos, time);
+            phase.bytes += allocated() - alloc;
+        };
+    }
+
+    public void count(String counter, long amount) {
+        if (enabled) counters.merge(counter, amount, Long::sum);
+    }
+
+    public void tick() {
+        if (!enabled) return;
+        ticks++;
+        float mspt = server.getTickTime();
+        msptTotal += mspt;
+        msptMax = Math.max(msptMax, mspt);
+    }
+
+    public void writeReport() {
+        if (!enabled || ticks == 0) return;
+
+        var lines = summarize();
+        var file = FabricLoader.getInstance().getGameDir().resolve(DeathRun.MOD_ID).resolve("reports")
+                .resolve(mapId.getNamespace() + "_" + mapId.getPath() + "_" + LocalDateTime.now().format(FILE_TIME) + ".txt");
+        Util.getIoWorkerExecutor().execute(() -> {
+            try {
+                Files.createDirectories(file.getParent());
+                Files.write(file, lines);
+                DeathRun.LOG.info("Wrote DeathRun tick report to {}", file);
+            } catch (IOException e) {
+                DeathRun.LOG.error("Failed to write DeathRun tick report", e);
+            }
+        });
+    }
+
+    /**
+     * @return the lines of the report of everything recorded so far, empty while disabled or before the first tick
+     */
+    public List<String> summarize() {
+        var lines = new ArrayList<String>();
+        if (!enabled || ticks == 0) return lines;
+
+        lines.add("DeathRun tick report for " + mapId);
+        lines.add("ticks: " + ticks);
+        lines.add(String.format("server mspt: avg %.3f, max %.3f", msptTotal / ticks, msptMax));
+        lines.add("");
+        lines.add(String.format("%-16s %12s %12s %16s", "phase", "avg us", "max us", "alloc B/tick"));
+        for (var phase : phases) {
+            lines.add(String.format("%-16s %12.3f %12.3f %16s", phase.name,
+                    phase.nanos / 1000d / ticks, phase.maxNanos / 1000d,
+                    threads == null ? "n/a" : Long.toString(phase.bytes / ticks)));
+        }
+        if (!counters.isEmpty()) {
+            lines.add("");
+            counters.forEach((name, amount) -> lines.add(String.format("%-32s %d", name, amount)));
+        }
+        return lines;
+    }
+
+    private long allocated() {
+        return threads == null ? 0 : threads.getCurrentThreadAllocatedBytes();
+    }
+
+    private static class Phase {
+        private final String name;
+        private long nanos = 0;
+        private long maxNanos = 0;
+        private long bytes = 0;
+
+        private Phase(String name) {
+            this.name = name;
+        }
+    }
+}
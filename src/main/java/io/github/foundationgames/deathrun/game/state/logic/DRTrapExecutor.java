@@ -0,0 +1,223 @@
+package io.github.foundationgames.deathrun.game.state.logic;
+
+import io.github.foundationgames.deathrun.game.TrapBudgetConfig;
+import io.github.foundationgames.deathrun.game.element.DeathTrap;
+import io.github.foundationgames.deathrun.game.element.deathtrap.ResettingDeathTrap;
+import io.github.foundationgames.deathrun.game.state.DRGame;
+import io.github.foundationgames.deathrun.game.state.DRTeam;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongArrays;
+import net.minecraft.block.Block;
+import net.minecraft.block.BlockState;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.util.math.BlockPos;
+import org.jetbrains.annotations.Nullable;
+import xyz.nucleoid.map_templates.BlockBounds;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Runs death trap triggers and resets block by block within a per-tick budget.
+ * Work that does not fit is carried over to later ticks, with the blocks closest
+ * to a runner done first. Without a budget, traps run in full immediately.
+ * Triggers of resetting traps record the blocks they change in a {@link DRBlockJournal},
+ * and resets only restore those blocks. A reset waits for the trap's trigger to be carried
+ * out in full, so that it sees every block the trigger changed.
+ */
+public class DRTrapExecutor {
+    private static final int TIME_CHECK_INTERVAL = 64;
+
+    private final DRGame game;
+    private final ServerWorld world;
+    private final TrapBudgetConfig budget;
+    private final int maxBlocks;
+    private final long maxNanos;
+    private final ArrayDeque<Task> tasks = new ArrayDeque<>();
+    private final BlockPos.Mutable mutable = new BlockPos.Mutable();
+    private final Map<BlockBounds, DRBlockJournal> journals = new HashMap<>();
+    private @Nullable DRBlockJournal recording;
+
+    private int blocksThisTick = 0;
+    private long nanosThisTick = 0;
+
+    public DRTrapExecutor(DRGame game, ServerWorld world, TrapBudgetConfig budget) {
+        this.game = game;
+        this.world = world;
+        this.budget = budget;
+        this.maxBlocks = budget.maxBlocks();
+        this.maxNanos = (long) (budget.maxMillis() * 1_000_000);
+    }
+
+    public void trigger(DeathTrap trap, BlockBounds zone) {
+        var journal = trap instanceof ResettingDeathTrap ? journals.computeIfAbsent(zone, z -> new DRBlockJournal()) : null;
+        recording = journal;
+        trap.trigger(game, world, zone);
+        recording = null;
+        submit(new Task(trap, zone, journal));
+    }
+
+    public void reset(ResettingDeathTrap trap, BlockBounds zone) {
+        for (var it = tasks.descendingIterator(); it.hasNext(); ) {
+            var task = it.next();
+            if (task.states == null && task.zone.equals(zone)) {
+                task.resetAfter = trap;
+                return;
+            }
+        }
+        var task = createReset(trap, zone);
+        if (task != null) submit(task);
+    }
+
+    private @Nullable Task createReset(ResettingDeathTrap trap, BlockBounds zone) {
+        trap.reset(game, world, zone);
+        var journal = journals.remove(zone);
+        if (journal == null || journal.size() == 0) return null;
+        var task = new Task(trap, zone, null);
+        task.positions = journal.getPositions();
+        task.states = journal.getStates();
+        return task;
+    }
+
+    /**
+     * Records the previous state of a block changed by the trap currently being triggered
+     */
+    public void record(BlockPos pos, BlockState previous) {
+        if (recording != null) recording.record(pos, previous);
+    }
+
+    public long estimateBytes() {
+        long bytes = 0;
+        for (var task : tasks) bytes += 48 + task.positions.length * 8L + (task.states == null ? 0 : task.states.length * 4L);
+        for (var journal : journals.values()) bytes += 64 + journal.estimateBytes();
+        return bytes;
+    }
+
+    public int getPendingBlocks() {
+        int pending = 0;
+        for (var task : tasks) pending += task.positions.length - task.index;
+        return pending;
+    }
+
+    public void tick() {
+        blocksThisTick = 0;
+        nanosThisTick = 0;
+        if (tasks.isEmpty()) return;
+
+        run();
+        if (!tasks.isEmpty()) {
+            game.metrics.count("trap_ticks_deferred", 1);
+            game.metrics.count("trap_blocks_deferred", getPendingBlocks());
+        }
+    }
+
+    private void submit(Task task) {
+        if (budget.isUnlimited()) {
+            if (task.states != null) {
+                for (int i = 0; i < task.positions.length; i++) task.apply(i);
+            } else {
+                for (BlockPos pos : task.zone) task.apply(pos);
+            }
+            return;
+        }
+        // Restored blocks keep the journal's reverse order
+        if (task.states == null) task.order(findFocus(task.zone));
+        tasks.add(task);
+        run();
+    }
+
+    private void run() {
+        long start = System.nanoTime();
+        while (!tasks.isEmpty()) {
+            var task = tasks.peek();
+            while (task.index < task.positions.length) {
+                if (maxBlocks > 0 && blocksThisTick >= maxBlocks) {
+                    nanosThisTick += System.nanoTime() - start;
+                    return;
+                }
+                if (maxNanos > 0 && blocksThisTick % TIME_CHECK_INTERVAL == 0 && nanosThisTick + System.nanoTime() - start >= maxNanos) {
+                    nanosThisTick += System.nanoTime() - start;
+                    return;
+                }
+                task.apply(task.index++);
+                blocksThisTick++;
+            }
+            tasks.poll();
+            if (task.resetAfter != null) {
+                var reset = createReset(task.resetAfter, task.zone);
+                if (reset != null) tasks.add(reset);
+            }
+        }
+        nanosThisTick += System.nanoTime() - start;
+    }
+
+    /**
+     * @return the packed position of the unfinished runner closest to the zone, or the zone's center if there is none
+     */
+    private long findFocus(BlockBounds zone) {
+        var center = zone.center();
+        long focus = new BlockPos(center).asLong();
+        double best = Double.MAX_VALUE;
+        var store = game.runners;
+        for (int i = 0; i < store.size(); i++) {
+            var player = store.get(i);
+            if (player != null && player.team == DRTeam.RUNNERS && !player.isFinished()) {
+                long pos = store.getBlockPos(i);
+                double dist = center.squaredDistanceTo(BlockPos.unpackLongX(pos), BlockPos.unpackLongY(pos), BlockPos.unpackLongZ(pos));
+                if (dist < best) {
+                    best = dist;
+                    focus = pos;
+                }
+            }
+        }
+        return focus;
+    }
+
+    private static long squaredDistance(long a, long b) {
+        long dx = BlockPos.unpackLongX(a) - BlockPos.unpackLongX(b);
+        long dy = BlockPos.unpackLongY(a) - BlockPos.unpackLongY(b);
+        long dz = BlockPos.unpackLongZ(a) - BlockPos.unpackLongZ(b);
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    private class Task {
+        private final DeathTrap trap;
+        private final BlockBounds zone;
+        private final @Nullable DRBlockJournal journal;
+        private long[] positions = new long[0];
+        // Raw ids of the states to restore, only for resets
+        private int @Nullable [] states;
+        private int index = 0;
+        // Reset requested while this trigger was still queued
+        private @Nullable ResettingDeathTrap resetAfter;
+
+        private Task(DeathTrap trap, BlockBounds zone, @Nullable DRBlockJournal journal) {
+            this.trap = trap;
+            this.zone = zone;
+            this.journal = journal;
+        }
+
+        private void order(long focus) {
+            var list = new LongArrayList();
+            for (BlockPos pos : zone) list.add(pos.asLong());
+            positions = list.toLongArray();
+            LongArrays.quickSort(positions, (a, b) -> Long.compare(squaredDistance(a, focus), squaredDistance(b, focus)));
+        }
+
+        private void apply(int i) {
+            mutable.set(positions[i]);
+            if (states != null) {
+                world.setBlockState(mutable, Block.getStateFromRawId(states[i]));
+            } else {
+                apply(mutable);
+            }
+        }
+
+        private void apply(BlockPos pos) {
+            recording = journal;
+            trap.triggerBlock(game, world, pos);
+            recording = null;
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package io.github.foundationgames.deathrun.game.state.logic;
+
+import io.github.foundationgames.deathrun.game.RunnerVisibilityConfig;
+import io.github.foundationgames.deathrun.game.state.DRGame;
+import io.github.foundationgames.deathrun.game.state.DRTeam;
+import io.github.foundationgames.deathrun.mixin.ThreadedAnvilChunkStorageAccess;
+import io.github.foundationgames.deathrun.util.TrackedStatusUpdater;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import it.unimi.dsi.fastutil.ints.IntSet;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.minecraft.server.network.ServerPlayerEntity;
+import net.minecraft.util.math.ChunkSectionPos;
+import net.minecraft.util.math.MathHelper;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Decides which runners each runner is sent tracking packets for. Deaths and
+ * finished runners always see everyone, and everyone always sees deaths.
+ * Vanilla only re-decides tracking when a player crosses a chunk section, so
+ * trackers are updated here whenever a runner's visible set changes. Visible
+ * sets within a radius are found from cells as wide as the radius, so only
+ * runners in neighbouring cells are compared.
+ */
+public class DRVisibilityLogic {
+    private static final int UPDATE_INTERVAL = 10;
+
+    private final DRGame game;
+    private final RunnerVisibilityConfig config;
+    // Runners each runner may see, in the nearest and radius modes
+    private final Map<ServerPlayerEntity, IntSet> visible = new HashMap<>();
+    private final List<DRGame.Player> runners = new ArrayList<>();
+    // Reused every update
+    private final List<DRGame.Player> candidates = new ArrayList<>();
+    private final IntSet previous = new IntOpenHashSet();
+    private final Long2ObjectOpenHashMap<List<DRGame.Player>> cells = new Long2ObjectOpenHashMap<>();
+    private int ticks = 0;
+
+    public DRVisibilityLogic(DRGame game, RunnerVisibilityConfig config) {
+        this.game = game;
+        this.config = config;
+    }
+
+    public boolean canSee(ServerPlayerEntity viewer, ServerPlayerEntity target) {
+        if (config.mode() == RunnerVisibilityConfig.Mode.ALL) return true;
+        if (!(game.players.get(viewer) instanceof DRGame.Player viewerPl) || !(game.players.get(target) instanceof DRGame.Player targetPl)) {
+            return true;
+        }
+        if (viewerPl.team != DRTeam.RUNNERS || viewerPl.isFinished() || targetPl.team != DRTeam.RUNNERS) {
+            return true;
+        }
+        return switch (config.mode()) {
+            case NONE -> false;
+            case RADIUS, NEAREST -> {
+                var set = visible.get(viewer);
+                yield set != null && set.contains(target.getId());
+            }
+            default -> true;
+        };
+    }
+
+    /**
+     * Updates every runner's tracking of every other runner, for when the game starts
+     */
+    public void refreshAll() {
+        if (config.mode() == RunnerVisibilityConfig.Mode.ALL) return;
+        collectRunners();
+        if (config.mode() == RunnerVisibilityConfig.Mode.RADIUS) updateRadius();
+        for (var viewer : runners) refresh(viewer.getPlayer());
+    }
+
+    /**
+     * Updates the viewer's tracking of every runner, for when what the viewer may see changed, such as when it finished
+     */
+    public void refresh(ServerPlayerEntity viewer) {
+        if (config.mode() == RunnerVisibilityConfig.Mode.ALL) return;
+        for (var drp : game.players.getPlayers()) {
+            if (drp instanceof DRGame.Player target && target.team == DRTeam.RUNNERS) updateTracking(viewer, target.getPlayer());
+        }
+    }
+
+    public void tick() {
+        if (config.mode() != RunnerVisibilityConfig.Mode.NEAREST && config.mode() != RunnerVisibilityConfig.Mode.RADIUS) return;
+        if (ticks++ % UPDATE_INTERVAL != 0) return;
+
+        collectRunners();
+        if (config.mode() == RunnerVisibilityConfig.Mode.RADIUS) {
+            updateRadius();
+            return;
+        }
+
+        visible.keySet().removeIf(p -> !(game.players.get(p) instanceof DRGame.Player));
+        int k = Math.min(config.nearest(), runners.size() - 1);
+        for (var viewer : runners) {
+            var viewerPl = viewer.getPlayer();
+            var set = visible.computeIfAbsent(viewerPl, p -> new IntOpenHashSet());
+            previous.clear();
+            previous.addAll(set);
+            set.clear();
+            if (k > 0) selectNearest(viewer, k, set);
+            updateChanged(viewerPl, set);
+        }
+    }
+
+    // Runners moving in or out of the radius without crossing a section
+    private void updateRadius() {
+        double radius = config.radius();
+        double cell = Math.max(1, radius);
+        cells.clear();
+        for (var runner : runners) {
+            var player = runner.getPlayer();
+            cells.computeIfAbsent(cellOf(player.getX(), player.getY(), player.getZ(), cell), c -> new ArrayList<>()).add(runner);
+        }
+
+        visible.keySet().removeIf(p -> !(game.players.get(p) instanceof DRGame.Player));
+        for (var viewer : runners) {
+            var viewerPl = viewer.getPlayer();
+            var set = visible.computeIfAbsent(viewerPl, p -> new IntOpenHashSet());
+            previous.clear();
+            previous.addAll(set);
+            set.clear();
+            int cx = MathHelper.floor(viewerPl.getX() / cell);
+            int cy = MathHelper.floor(viewerPl.getY() / cell);
+            int cz = MathHelper.floor(viewerPl.getZ() / cell);
+            for (int x = cx - 1; x <= cx + 1; x++) {
+                for (int y = cy - 1; y <= cy + 1; y++) {
+                    for (int z = cz - 1; z <= cz + 1; z++) {
+                        var targets = cells.get(ChunkSectionPos.asLong(x, y, z));
+                        if (targets == null) continue;
+                        for (var target : targets) {
+                            if (target != viewer && viewerPl.squaredDistanceTo(target.getPlayer()) <= radius * radius) set.add(target.getPlayer().getId());
+                        }
+                    }
+                }
+            }
+            updateChanged(viewerPl, set);
+        }
+    }
+
+    // Only pairs whose visibility changed since the previous update have their tracking updated
+    private void updateChanged(ServerPlayerEntity viewer, IntSet set) {
+        for (int id : set) {
+            if (!previous.contains(id)) updateTracking(viewer, id);
+        }
+        for (int id : previous) {
+            if (!set.contains(id)) updateTracking(viewer, id);
+        }
+    }
+
+    private static long cellOf(double x, double y, double z, double cell) {
+        return ChunkSectionPos.asLong(MathHelper.floor(x / cell), MathHelper.floor(y / cell), MathHelper.floor(z / cell));
+    }
+
+    private void collectRunners() {
+        runners.clear();
+        for (var drp : game.players.getPlayers()) {
+            if (drp instanceof DRGame.Player player && player.team == DRTeam.RUNNERS) {
+                runners.add(player);
+            }
+        }
+    }
+
+    private void selectNearest(DRGame.Player viewer, int k, IntSet set) {
+        var viewerPl = viewer.getPlayer();
+        candidates.clear();
+        candidates.addAll(runners);
+        candidates.remove(viewer);
+        // Partial selection sort, k is expected to be small
+        for (int i = 0; i < k; i++) {
+            int best = i;
+            double bestDist = viewerPl.squaredDistanceTo(candidates.get(i).getPlayer());
+            for (int j = i + 1; j < candidates.size(); j++) {
+                double dist = viewerPl.squaredDistanceTo(candidates.get(j).getPlayer());
+                if (dist < bestDist) {
+                    best = j;
+                    bestDist = dist;
+                }
+            }
+            var closest = candidates.get(best);
+            candidates.set(best, candidates.get(i));
+            candidates.set(i, closest);
+            set.add(closest.getPlayer().getId());
+        }
+    }
+
+    private void updateTracking(ServerPlayerEntity viewer, ServerPlayerEntity target) {
+        if (viewer != target) updateTracking(viewer, target.getId());
+    }
+
+    private void updateTracking(ServerPlayerEntity viewer, int targetId) {
+        var storage = (ThreadedAnvilChunkStorageAccess) game.world.getChunkManager().threadedAnvilChunkStorage;
+        if (storage.deathrun$entityTrackers().get(targetId) instanceof TrackedStatusUpdater tracker) {
+            tracker.deathrun$updateTrackedStatus(viewer);
+        }
+    }
+}
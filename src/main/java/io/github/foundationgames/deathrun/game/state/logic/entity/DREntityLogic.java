@@ -2,28 +2,59 @@ package io.github.foundationgames.deathrun.game.state.logic.entity;
 
 import io.github.foundationgames.deathrun.DeathRun;
 import io.github.foundationgames.deathrun.game.state.DRGame;
+import io.github.foundationgames.deathrun.game.state.logic.DRTickMetrics;
 import net.minecraft.entity.Entity;
 import net.minecraft.server.world.ServerWorld;
+import net.minecraft.util.math.ChunkPos;
 
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
 
 public class DREntityLogic {
     private final Map<Integer, EntityBehavior<Entity>> active = new HashMap<>();
+    // Removed entities can no longer be looked up by id, they are kept here until handed to the pool
+    private final Map<Integer, Entity> spawned = new HashMap<>();
     private final Set<Integer> idCache = new HashSet<>();
     private final ServerWorld world;
     private final DRGame game;
+    public final ProjectilePool pool;
 
     public DREntityLogic(ServerWorld world, DRGame game) {
         this.world = world;
         this.game = game;
+        this.pool = new ProjectilePool(world);
     }
 
     @SuppressWarnings("unchecked")
     public <E extends Entity> void attach(E entity, EntityBehavior<E> behavior) {
         active.put(entity.getId(), (EntityBehavior<Entity>)behavior);
+        spawned.put(entity.getId(), entity);
+    }
+
+    public long estimateBytes() {
+        // Boxed key, hash map node and behavior or entity reference, twice for the id cache
+        return active.size() * 144L + idCache.size() * 48L + pool.estimateBytes();
+    }
+
+    /**
+     * Visits every live trap entity
+     */
+    public void forEachEntity(Consumer<Entity> action) {
+        for (int id : active.keySet()) {
+            var entity = world.getEntityById(id);
+            if (entity != null && !entity.isRemoved()) action.accept(entity);
+        }
+    }
+
+    /**
+     * Visits the chunk of every live trap entity
+     */
+    public void forEachChunk(LongConsumer action) {
+        forEachEntity(entity -> action.accept(ChunkPos.toLong(entity.getBlockX() >> 4, entity.getBlockZ() >> 4)));
     }
 
     public void tick() {
@@ -33,6 +64,7 @@ public class DREntityLogic {
             var entity = world.getEntityById(id);
             if (entity == null || entity.isRemoved()) {
                 active.remove(id);
+                pool.release(spawned.remove(id));
                 continue;
             }
             var behavior = active.get(id);
@@ -40,8 +72,14 @@ public class DREntityLogic {
                 behavior.tick(entity, game);
             } else {
                 active.remove(id);
+                spawned.remove(id);
                 DeathRun.LOG.error("Cannot tick entity of class {} (id {}) with behavior of incompatible entity class {}, discarding", entity.getClass(), id, behavior.getEntityClass());
             }
         }
     }
+
+    public void report(DRTickMetrics metrics) {
+        metrics.count("projectiles_created", pool.getCreated());
+        metrics.count("projectiles_reused", pool.getReused());
+    }
 }
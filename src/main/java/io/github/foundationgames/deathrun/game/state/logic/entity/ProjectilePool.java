@@ -0,0 +1,113 @@
+package io.github.foundationgames.deathrun.game.state.logic.entity;
+
+import io.github.foundationgames.deathrun.mixin.PersistentProjectileEntityAccess;
+import io.github.foundationgames.deathrun.mixin.ProjectileEntityAccess;
+import io.github.foundationgames.deathrun.mixin.TridentEntityAccess;
+import net.minecraft.entity.Entity;
+import net.minecraft.entity.LivingEntity;
+import net.minecraft.entity.player.PlayerEntity;
+import net.minecraft.entity.projectile.ArrowEntity;
+import net.minecraft.entity.projectile.PersistentProjectileEntity;
+import net.minecraft.entity.projectile.TridentEntity;
+import net.minecraft.item.ItemStack;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.util.math.Vec3d;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reuses the arrows of dispenser traps and the tridents of activators once they were discarded,
+ * rather than allocating a new entity, with its data tracker, bounding box and vectors, for each
+ * shot. A reused projectile is revived with the state a new one starts with, and keeps its entity
+ * id and uuid, which are free again once it was removed from the world. Trap arrows carry no
+ * potion, and activator tridents are all thrown from the same item, so the tracked data set from
+ * the item when a projectile is created stays valid. Bounded, further projectiles are left to
+ * be collected.
+ */
+public class ProjectilePool {
+    private static final int MAX_POOLED = 64;
+
+    private final ServerWorld world;
+    private final List<ArrowEntity> arrows = new ArrayList<>();
+    private final List<TridentEntity> tridents = new ArrayList<>();
+    private long created = 0;
+    private long reused = 0;
+
+    public ProjectilePool(ServerWorld world) {
+        this.world = world;
+    }
+
+    public ArrowEntity arrow(double x, double y, double z) {
+        if (arrows.isEmpty()) {
+            created++;
+            return new ArrowEntity(world, x, y, z);
+        }
+        var arrow = arrows.remove(arrows.size() - 1);
+        revive(arrow, x, y, z);
+        reused++;
+        return arrow;
+    }
+
+    public TridentEntity trident(LivingEntity owner, ItemStack stack) {
+        if (tridents.isEmpty()) {
+            created++;
+            return new TridentEntity(world, owner, stack);
+        }
+        var trident = tridents.remove(tridents.size() - 1);
+        // Where the entity constructor places a projectile shot by an entity
+        revive(trident, owner.getX(), owner.getEyeY() - 0.1, owner.getZ());
+        trident.setOwner(owner);
+        trident.pickupType = owner instanceof PlayerEntity ? PersistentProjectileEntity.PickupPermission.ALLOWED : PersistentProjectileEntity.PickupPermission.DISALLOWED;
+        trident.returnTimer = 0;
+        var access = (TridentEntityAccess) trident;
+        access.deathrun$setTridentStack(stack.copy());
+        access.deathrun$setDealtDamage(false);
+        reused++;
+        return trident;
+    }
+
+    /**
+     * Takes back a projectile that was discarded or killed, projectiles unloaded with their chunk are not taken
+     */
+    public void release(Entity entity) {
+        var reason = entity.getRemovalReason();
+        if (reason != Entity.RemovalReason.DISCARDED && reason != Entity.RemovalReason.KILLED) return;
+        if (entity.getClass() == ArrowEntity.class && arrows.size() < MAX_POOLED) {
+            arrows.add((ArrowEntity) entity);
+        } else if (entity.getClass() == TridentEntity.class && tridents.size() < MAX_POOLED) {
+            tridents.add((TridentEntity) entity);
+        }
+    }
+
+    public long getCreated() {
+        return created;
+    }
+
+    public long getReused() {
+        return reused;
+    }
+
+    public long estimateBytes() {
+        // Entity, data tracker and boxes, roughly
+        return (arrows.size() + tridents.size()) * 1024L;
+    }
+
+    private static void revive(PersistentProjectileEntity projectile, double x, double y, double z) {
+        projectile.unsetRemoved();
+        var access = (PersistentProjectileEntityAccess) projectile;
+        access.deathrun$setInGround(false);
+        access.deathrun$setInGroundTime(0);
+        access.deathrun$setLife(0);
+        access.deathrun$setInBlockState(null);
+        ((ProjectileEntityAccess) projectile).deathrun$setLeftOwner(false);
+        projectile.shake = 0;
+        projectile.age = 0;
+        projectile.fallDistance = 0;
+        projectile.setFireTicks(0);
+        projectile.setCritical(false);
+        projectile.setPierceLevel((byte) 0);
+        projectile.setVelocity(Vec3d.ZERO);
+        projectile.refreshPositionAndAngles(x, y, z, 0, 0);
+    }
+}
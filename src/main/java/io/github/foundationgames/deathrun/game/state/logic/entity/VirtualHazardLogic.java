@@ -0,0 +1,223 @@
+package io.github.foundationgames.deathrun.game.state.logic.entity;
+
+import io.github.foundationgames.deathrun.game.state.DRGame;
+import io.github.foundationgames.deathrun.util.DRUtil;
+import net.minecraft.block.Block;
+import net.minecraft.block.BlockState;
+import net.minecraft.entity.EntityType;
+import net.minecraft.network.packet.s2c.play.EntitiesDestroyS2CPacket;
+import net.minecraft.network.packet.s2c.play.EntitySpawnS2CPacket;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.util.math.MathHelper;
+import net.minecraft.util.math.Vec3d;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * Simulates falling dripstone and lightning without creating entities. Hazard
+ * state is kept in flat arrays, clients are sent fake spawn and remove packets,
+ * and lethal volumes are tested directly against runner bounding boxes.
+ * With lag compensation, the heights of the last ticks are kept so a runner can be
+ * tested against the hazards as they were when the runner saw them, and ended
+ * hazards are kept until they are too old to be seen by anyone.
+ */
+public class VirtualHazardLogic {
+    private static final byte DRIPSTONE = 0;
+    private static final byte LIGHTNING = 1;
+
+    // Matches FallingBlockEntity
+    private static final double GRAVITY = 0.04;
+    private static final double DRAG = 0.98;
+    private static final double HALF_WIDTH = 0.49;
+    private static final int MAX_FALL_TIME = 10 * 20;
+
+    private static final int LIGHTNING_TIME = 5;
+    private static final double LIGHTNING_RANGE = 1.5;
+
+    private static final int DRIPSTONE_LANDS_EVENT_ID = 1045;
+
+    private final ServerWorld world;
+    private final DRGame game;
+    private final BlockPos.Mutable mutable = new BlockPos.Mutable();
+    private final int maxRewind;
+    private final int history;
+
+    private int ticks = 0;
+    private int size = 0;
+    private byte[] type = new byte[16];
+    private double[] x = new double[16];
+    private double[] y = new double[16];
+    private double[] z = new double[16];
+    private double[] velY = new double[16];
+    private int[] spawnTick = new int[16];
+    // The last tick the hazard was lethal, or max value while it still is
+    private int[] endTick = new int[16];
+    private int[] firstId = new int[16];
+    private int[] height = new int[16];
+    // Heights of the last ticks, indexed by hazard and tick
+    private double[] pastY;
+
+    public VirtualHazardLogic(ServerWorld world, DRGame game, int maxRewind) {
+        this.world = world;
+        this.game = game;
+        this.maxRewind = maxRewind;
+        this.history = maxRewind + 1;
+        this.pastY = new double[16 * history];
+    }
+
+    /**
+     * Spawns a falling column of blocks whose bottom is at the given position,
+     * one client entity per state, bottom first
+     */
+    public void spawnFallingColumn(Vec3d bottom, BlockState[] states) {
+        int id = DRUtil.nextEntityIds(states.length);
+        for (int i = 0; i < states.length; i++) {
+            game.players.sendPacket(new EntitySpawnS2CPacket(id + i, MathHelper.randomUuid(game.determinism.random), bottom.x, bottom.y + i, bottom.z, 0, 0, EntityType.FALLING_BLOCK, Block.getRawIdFromState(states[i]), Vec3d.ZERO));
+        }
+        add(DRIPSTONE, bottom, id, states.length);
+    }
+
+    public void spawnLightning(Vec3d pos) {
+        int id = DRUtil.nextEntityId();
+        game.players.sendPacket(new EntitySpawnS2CPacket(id, MathHelper.randomUuid(game.determinism.random), pos.x, pos.y, pos.z, 0, 0, EntityType.LIGHTNING_BOLT, 0, Vec3d.ZERO));
+        add(LIGHTNING, pos, id, 1);
+    }
+
+    /**
+     * Tests a runner's box against the hazards as they were the given number of ticks ago,
+     * which must be at most the maximum rewind
+     */
+    public boolean intersects(int rewind, double minX, double minY, double minZ, double maxX, double maxY, double maxZ) {
+        int tick = ticks - rewind;
+        int sample = tick % history;
+        for (int i = 0; i < size; i++) {
+            if (tick < spawnTick[i] || tick > endTick[i]) continue;
+            double hy = pastY[i * history + sample];
+            double range = type[i] == DRIPSTONE ? HALF_WIDTH : LIGHTNING_RANGE;
+            double bottom = type[i] == DRIPSTONE ? hy : hy - LIGHTNING_RANGE;
+            double top = type[i] == DRIPSTONE ? hy + height[i] - 0.02 : hy + LIGHTNING_RANGE;
+            if (minX < x[i] + range && maxX > x[i] - range &&
+                    minY < top && maxY > bottom &&
+                    minZ < z[i] + range && maxZ > z[i] - range) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return whether any hazard, including ones lagging runners may still see, is within range of the position
+     */
+    public boolean isNear(double px, double py, double pz, double range) {
+        for (int i = 0; i < size; i++) {
+            if (Math.abs(px - x[i]) < range && Math.abs(pz - z[i]) < range && py > y[i] - range && py < y[i] + height[i] + range) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Visits the chunk of every hazard still falling or striking
+     */
+    public void forEachChunk(LongConsumer action) {
+        for (int i = 0; i < size; i++) {
+            if (endTick[i] == Integer.MAX_VALUE) action.accept(ChunkPos.toLong(MathHelper.floor(x[i]) >> 4, MathHelper.floor(z[i]) >> 4));
+        }
+    }
+
+    public long estimateBytes() {
+        // Type, position, velocity, ticks, first id, height and past heights per hazard
+        return type.length * (1L + 8 * 4 + 4 * 4) + pastY.length * 8L;
+    }
+
+    public void tick() {
+        ticks++;
+        int sample = ticks % history;
+        for (int i = 0; i < size; i++) {
+            if (endTick[i] != Integer.MAX_VALUE) {
+                // Ended hazards are kept while lagging runners could still see them
+                if (ticks - endTick[i] > maxRewind) {
+                    remove(i);
+                    i--;
+                }
+                continue;
+            }
+            int age = ticks - spawnTick[i];
+            boolean done;
+            if (type[i] == DRIPSTONE) {
+                velY[i] -= GRAVITY;
+                y[i] += velY[i];
+                velY[i] *= DRAG;
+
+                mutable.set(x[i], y[i], z[i]);
+                boolean landed = !world.getBlockState(mutable).getCollisionShape(world, mutable).isEmpty();
+                if (landed) world.syncWorldEvent(DRIPSTONE_LANDS_EVENT_ID, mutable, 0);
+                done = landed || age > MAX_FALL_TIME || y[i] < world.getBottomY();
+            } else {
+                done = age > LIGHTNING_TIME;
+            }
+
+            if (done) {
+                end(i);
+                if (maxRewind == 0) {
+                    remove(i);
+                    i--;
+                }
+            } else {
+                pastY[i * history + sample] = y[i];
+            }
+        }
+    }
+
+    private void add(byte hazardType, Vec3d pos, int id, int count) {
+        if (size == type.length) grow();
+        type[size] = hazardType;
+        x[size] = pos.x;
+        y[size] = pos.y;
+        z[size] = pos.z;
+        velY[size] = 0;
+        spawnTick[size] = ticks;
+        endTick[size] = Integer.MAX_VALUE;
+        firstId[size] = id;
+        height[size] = count;
+        pastY[size * history + ticks % history] = pos.y;
+        size++;
+    }
+
+    private void end(int i) {
+        endTick[i] = ticks - 1;
+        var ids = new int[height[i]];
+        for (int j = 0; j < ids.length; j++) ids[j] = firstId[i] + j;
+        game.players.sendPacket(new EntitiesDestroyS2CPacket(ids));
+    }
+
+    private void remove(int i) {
+        int last = --size;
+        type[i] = type[last];
+        x[i] = x[last];
+        y[i] = y[last];
+        z[i] = z[last];
+        velY[i] = velY[last];
+        spawnTick[i] = spawnTick[last];
+        endTick[i] = endTick[last];
+        firstId[i] = firstId[last];
+        height[i] = height[last];
+        System.arraycopy(pastY, last * history, pastY, i * history, history);
+    }
+
+    private void grow() {
+        int cap = type.length * 2;
+        type = Arrays.copyOf(type, cap);
+        x = Arrays.copyOf(x, cap);
+        y = Arrays.copyOf(y, cap);
+        z = Arrays.copyOf(z, cap);
+        velY = Arrays.copyOf(velY, cap);
+        spawnTick = Arrays.copyOf(spawnTick, cap);
+        endTick = Arrays.copyOf(endTick, cap);
+        pastY = Arrays.copyOf(pastY, cap * history);
+        firstId = Arrays.copyOf(firstId, cap);
+        height = Arrays.copyOf(height, cap);
+    }
+}
@@ -0,0 +1,167 @@
+package io.github.foundationgames.deathrun.game.state.logic.entity;
+
+import io.github.foundationgames.deathrun.game.state.DRGame;
+import io.github.foundationgames.deathrun.game.state.DRTeam;
+import io.github.foundationgames.deathrun.util.DRUtil;
+import net.minecraft.entity.EntityType;
+import net.minecraft.network.packet.s2c.play.EntitiesDestroyS2CPacket;
+import net.minecraft.network.packet.s2c.play.EntitySpawnS2CPacket;
+import net.minecraft.network.packet.s2c.play.EntityVelocityUpdateS2CPacket;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.util.hit.BlockHitResult;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.util.math.MathHelper;
+import net.minecraft.util.math.Vec3d;
+import net.minecraft.world.BlockView;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.LongConsumer;
+
+/**
+ * Simulates trap arrows on the server without creating entities. Clients are sent
+ * a spawn and velocity packet and run the arrow's motion themselves, while the
+ * server steps the same motion and tests each step against runners and blocks.
+ * With lag compensation, each runner is tested against the step the arrow took as
+ * many ticks ago as the runner lags behind, so arrows keep their last steps.
+ */
+public class VirtualProjectileLogic {
+    private static final double GRAVITY = 0.05;
+    private static final double DRAG = 0.99;
+    private static final double HIT_MARGIN = 0.08;
+    private static final int MAX_AGE = 10 * 20;
+
+    private final ServerWorld world;
+    private final DRGame game;
+    private final List<Arrow> arrows = new ArrayList<>();
+    private final Set<DRGame.Player> hits = new HashSet<>();
+    private final int maxRewind;
+    private final int history;
+    private int ticks = 0;
+
+    public VirtualProjectileLogic(ServerWorld world, DRGame game, int maxRewind) {
+        this.world = world;
+        this.game = game;
+        this.maxRewind = maxRewind;
+        this.history = maxRewind + 2;
+    }
+
+    public void spawnArrow(Vec3d pos, Vec3d velocity) {
+        var arrow = new Arrow(DRUtil.nextEntityId(), pos, velocity, ticks, history);
+        arrows.add(arrow);
+
+        float yaw = (float)(MathHelper.atan2(velocity.x, velocity.z) * 180 / Math.PI);
+        float pitch = (float)(MathHelper.atan2(velocity.y, Math.sqrt(velocity.x * velocity.x + velocity.z * velocity.z)) * 180 / Math.PI);
+        game.players.sendPacket(new EntitySpawnS2CPacket(arrow.id, MathHelper.randomUuid(game.determinism.random), pos.x, pos.y, pos.z, pitch, yaw, EntityType.ARROW, 0, velocity));
+        game.players.sendPacket(new EntityVelocityUpdateS2CPacket(arrow.id, velocity));
+    }
+
+    public long estimateBytes() {
+        // Arrow object with two vectors and its past positions
+        return arrows.size() * (96L + history * 24L) + hits.size() * 48L;
+    }
+
+    /**
+     * Visits the chunk of every arrow still flying
+     */
+    public void forEachChunk(LongConsumer action) {
+        for (var arrow : arrows) {
+            if (arrow.endTick == Integer.MAX_VALUE) action.accept(ChunkPos.toLong(MathHelper.floor(arrow.pos.x) >> 4, MathHelper.floor(arrow.pos.z) >> 4));
+        }
+    }
+
+    public boolean isHit(DRGame.Player player) {
+        return hits.contains(player);
+    }
+
+    public void tick() {
+        hits.clear();
+        ticks++;
+        if (arrows.isEmpty()) return;
+
+        var iter = arrows.iterator();
+        while (iter.hasNext()) {
+            var arrow = iter.next();
+            if (arrow.endTick != Integer.MAX_VALUE) {
+                // Stopped arrows are kept while lagging runners could still be hit by their last steps
+                if (ticks - arrow.endTick > maxRewind) {
+                    iter.remove();
+                    continue;
+                }
+            } else {
+                var start = arrow.pos;
+                var end = start.add(arrow.velocity);
+
+                var blockHit = raycastBlocks(start, end);
+                if (blockHit != null) end = blockHit.getPos();
+
+                arrow.pos = end;
+                arrow.record(ticks, end);
+                arrow.velocity = arrow.velocity.multiply(DRAG).add(0, -GRAVITY, 0);
+                arrow.age++;
+
+                if (blockHit != null || arrow.age > MAX_AGE || end.y < world.getBottomY()) stop(arrow, ticks);
+            }
+
+            for (var drp : game.players.getPlayers()) {
+                if (drp instanceof DRGame.Player player && player.team == DRTeam.RUNNERS && !player.isFinished()) {
+                    // The step the arrow took when this runner saw it
+                    int tick = ticks - game.getRewindTicks(player);
+                    if (tick <= arrow.spawnTick || tick > arrow.endTick) continue;
+                    var start = arrow.getPast(tick - 1);
+                    var end = arrow.getPast(tick);
+                    var box = player.getPlayer().getBoundingBox().expand(HIT_MARGIN);
+                    if (box.contains(start) || box.raycast(start, end).isPresent()) {
+                        hits.add(player);
+                        stop(arrow, tick);
+                    }
+                }
+            }
+
+            if (arrow.endTick != Integer.MAX_VALUE && maxRewind == 0) iter.remove();
+        }
+    }
+
+    private void stop(Arrow arrow, int lastTick) {
+        if (arrow.endTick == Integer.MAX_VALUE) game.players.sendPacket(new EntitiesDestroyS2CPacket(arrow.id));
+        arrow.endTick = Math.min(arrow.endTick, lastTick);
+    }
+
+    private @Nullable BlockHitResult raycastBlocks(Vec3d start, Vec3d end) {
+        return BlockView.raycast(start, end, world,
+                (w, pos) -> w.getBlockState(pos).getCollisionShape(w, pos).raycast(start, end, pos),
+                w -> null);
+    }
+
+    private static class Arrow {
+        private final int id;
+        private final int spawnTick;
+        // Positions at the end of the last ticks, indexed by tick
+        private final Vec3d[] past;
+        private Vec3d pos;
+        private Vec3d velocity;
+        private int age = 0;
+        // The last tick whose step can hit, or max value while the arrow flies
+        private int endTick = Integer.MAX_VALUE;
+
+        private Arrow(int id, Vec3d pos, Vec3d velocity, int spawnTick, int history) {
+            this.id = id;
+            this.pos = pos;
+            this.velocity = velocity;
+            this.spawnTick = spawnTick;
+            this.past = new Vec3d[history];
+            record(spawnTick, pos);
+        }
+
+        private void record(int tick, Vec3d pos) {
+            past[tick % past.length] = pos;
+        }
+
+        private Vec3d getPast(int tick) {
+            return past[tick % past.length];
+        }
+    }
+}
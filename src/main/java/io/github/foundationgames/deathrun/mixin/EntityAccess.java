@@ -0,0 +1,15 @@
+package io.github.foundationgames.deathrun.mixin;
+
+import net.minecraft.entity.Entity;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.gen.Accessor;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Mixin(Entity.class)
+public interface EntityAccess {
+    @Accessor("CURRENT_ID")
+    static AtomicInteger deathrun$currentId() {
+        throw new AssertionError();
+    }
+}
@@ -0,0 +1,37 @@
+package io.github.foundationgames.deathrun.mixin;
+
+import io.github.foundationgames.deathrun.game.state.DRGame;
+import io.github.foundationgames.deathrun.util.TrackedStatusUpdater;
+import net.minecraft.entity.Entity;
+import net.minecraft.server.network.ServerPlayerEntity;
+import org.spongepowered.asm.mixin.Final;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Shadow;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+@Mixin(targets = "net.minecraft.server.world.ThreadedAnvilChunkStorage$EntityTracker")
+public abstract class EntityTrackerMixin implements TrackedStatusUpdater {
+    @Shadow @Final Entity entity;
+
+    @Shadow public abstract void stopTracking(ServerPlayerEntity player);
+
+    @Shadow public abstract void updateTrackedStatus(ServerPlayerEntity player);
+
+    @Inject(method = "updateTrackedStatus(Lnet/minecraft/server/network/ServerPlayerEntity;)V", at = @At("HEAD"), cancellable = true)
+    private void deathrun$filterRunnerTracking(ServerPlayerEntity player, CallbackInfo ci) {
+        if (entity instanceof ServerPlayerEntity target && target != player) {
+            var game = DRGame.get(player.getServerWorld());
+            if (game != null && !game.visibility.canSee(player, target)) {
+                stopTracking(player);
+                ci.cancel();
+            }
+        }
+    }
+
+    @Override
+    public void deathrun$updateTrackedStatus(ServerPlayerEntity player) {
+        updateTrackedStatus(player);
+    }
+}
@@ -1,5 +1,6 @@
 package io.github.foundationgames.deathrun.mixin;
 
+import net.minecraft.block.BlockState;
 import net.minecraft.entity.projectile.PersistentProjectileEntity;
 import org.spongepowered.asm.mixin.Mixin;
 import org.spongepowered.asm.mixin.gen.Accessor;
@@ -8,4 +9,16 @@ import org.spongepowered.asm.mixin.gen.Accessor;
 public interface PersistentProjectileEntityAccess {
     @Accessor("inGround")
     boolean deathrun$inGround();
+
+    @Accessor("inGround")
+    void deathrun$setInGround(boolean inGround);
+
+    @Accessor("inGroundTime")
+    void deathrun$setInGroundTime(int inGroundTime);
+
+    @Accessor("life")
+    void deathrun$setLife(int life);
+
+    @Accessor("inBlockState")
+    void deathrun$setInBlockState(BlockState state);
 }
@@ -0,0 +1,11 @@
+package io.github.foundationgames.deathrun.mixin;
+
+import net.minecraft.entity.projectile.ProjectileEntity;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.gen.Accessor;
+
+@Mixin(ProjectileEntity.class)
+public interface ProjectileEntityAccess {
+    @Accessor("leftOwner")
+    void deathrun$setLeftOwner(boolean leftOwner);
+}
@@ -0,0 +1,60 @@
+package io.github.foundationgames.deathrun.mixin;
+
+import io.github.foundationgames.deathrun.game.map.ChunkPacketCache;
+import io.github.foundationgames.deathrun.game.state.DRGame;
+import io.github.foundationgames.deathrun.game.state.logic.DRArenaSimulation;
+import net.minecraft.block.Block;
+import net.minecraft.block.BlockState;
+import net.minecraft.fluid.Fluid;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.ScheduledTick;
+import net.minecraft.world.chunk.WorldChunk;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+@Mixin(ServerWorld.class)
+public abstract class ServerWorldMixin {
+    @Inject(method = "onBlockChanged", at = @At("HEAD"))
+    private void deathrun$notifyBlockChanged(BlockPos pos, BlockState oldBlock, BlockState newBlock, CallbackInfo ci) {
+        var world = (ServerWorld) (Object) this;
+        var game = DRGame.get(world);
+        if (game != null) {
+            game.onBlockChanged(pos, newBlock);
+        }
+        var chunks = ChunkPacketCache.get(world);
+        if (chunks != null) {
+            chunks.markDirty(pos);
+        }
+    }
+
+    @Inject(method = "tickChunk", at = @At("HEAD"), cancellable = true)
+    private void deathrun$cullChunkTick(WorldChunk chunk, int randomTickSpeed, CallbackInfo ci) {
+        var game = DRGame.get((ServerWorld) (Object) this);
+        if (game != null && !game.arena.shouldTickChunk(chunk.getPos())) {
+            ci.cancel();
+        }
+    }
+
+    @Inject(method = "tickBlock", at = @At("HEAD"), cancellable = true)
+    private void deathrun$cullBlockTick(ScheduledTick<Block> tick, CallbackInfo ci) {
+        var world = (ServerWorld) (Object) this;
+        var game = DRGame.get(world);
+        if (game != null && !game.arena.shouldTickBlock(tick.pos)) {
+            world.getBlockTickScheduler().schedule(tick.pos, tick.getObject(), DRArenaSimulation.DEFER_TICKS, tick.priority);
+            ci.cancel();
+        }
+    }
+
+    @Inject(method = "tickFluid", at = @At("HEAD"), cancellable = true)
+    private void deathrun$cullFluidTick(ScheduledTick<Fluid> tick, CallbackInfo ci) {
+        var world = (ServerWorld) (Object) this;
+        var game = DRGame.get(world);
+        if (game != null && !game.arena.shouldTickBlock(tick.pos)) {
+            world.getFluidTickScheduler().schedule(tick.pos, tick.getObject(), DRArenaSimulation.DEFER_TICKS, tick.priority);
+            ci.cancel();
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package io.github.foundationgames.deathrun.mixin;
+
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import net.minecraft.server.world.ThreadedAnvilChunkStorage;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.gen.Accessor;
+
+@Mixin(ThreadedAnvilChunkStorage.class)
+public interface ThreadedAnvilChunkStorageAccess {
+    @Accessor("entityTrackers")
+    Int2ObjectMap<?> deathrun$entityTrackers();
+}
@@ -0,0 +1,23 @@
+package io.github.foundationgames.deathrun.mixin;
+
+import io.github.foundationgames.deathrun.game.map.ChunkPacketCache;
+import net.minecraft.network.packet.s2c.play.ChunkDataS2CPacket;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.server.world.ThreadedAnvilChunkStorage;
+import net.minecraft.world.chunk.WorldChunk;
+import org.spongepowered.asm.mixin.Final;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Shadow;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Redirect;
+
+@Mixin(ThreadedAnvilChunkStorage.class)
+public abstract class ThreadedAnvilChunkStorageMixin {
+    @Shadow @Final ServerWorld world;
+
+    @Redirect(method = "sendChunkDataPackets", at = @At(value = "NEW", target = "net/minecraft/network/packet/s2c/play/ChunkDataS2CPacket"))
+    private ChunkDataS2CPacket deathrun$useCachedChunkData(WorldChunk chunk) {
+        var cache = ChunkPacketCache.get(world);
+        return cache != null ? cache.getPacket(chunk) : new ChunkDataS2CPacket(chunk);
+    }
+}
@@ -0,0 +1,15 @@
+package io.github.foundationgames.deathrun.mixin;
+
+import net.minecraft.entity.projectile.TridentEntity;
+import net.minecraft.item.ItemStack;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.gen.Accessor;
+
+@Mixin(TridentEntity.class)
+public interface TridentEntityAccess {
+    @Accessor("tridentStack")
+    void deathrun$setTridentStack(ItemStack stack);
+
+    @Accessor("dealtDamage")
+    void deathrun$setDealtDamage(boolean dealtDamage);
+}
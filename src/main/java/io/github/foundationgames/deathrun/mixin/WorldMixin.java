@@ -0,0 +1,21 @@
+package io.github.foundationgames.deathrun.mixin;
+
+import io.github.foundationgames.deathrun.game.state.DRGame;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.world.World;
+import net.minecraft.world.chunk.BlockEntityTickInvoker;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Redirect;
+
+@Mixin(World.class)
+public abstract class WorldMixin {
+    @Redirect(method = "tickBlockEntities", at = @At(value = "INVOKE", target = "Lnet/minecraft/world/chunk/BlockEntityTickInvoker;tick()V"))
+    private void deathrun$cullBlockEntityTick(BlockEntityTickInvoker invoker) {
+        if ((Object) this instanceof ServerWorld world) {
+            var game = DRGame.get(world);
+            if (game != null && !game.arena.shouldTickBlockEntity(invoker.getPos())) return;
+        }
+        invoker.tick();
+    }
+}
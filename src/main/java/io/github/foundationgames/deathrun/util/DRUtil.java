@@ -1,5 +1,6 @@
 package io.github.foundationgames.deathrun.util;
 
+import io.github.foundationgames.deathrun.mixin.EntityAccess;
 import net.minecraft.item.ItemStack;
 import net.minecraft.item.Items;
 import net.minecraft.nbt.NbtCompound;
@@ -43,6 +44,20 @@ public enum DRUtil {
         return createHead(new UUID(0, 0), "eyJ0ZXh0dXJlcyI6eyJTS0lOIjp7InVybCI6Imh0dHA6Ly90ZXh0dXJlcy5taW5lY3JhZnQubmV0L3RleHR1cmUvZWZlNWNmMjZkZGJiZTc4NTI2MGY3ZTFjOWRmN2JjMmY1NTFiYWRjNGFlNGEyMTE4YjFjZTFkYjljYWZiMjYzMyJ9fX0=");
     }
 
+    /**
+     * Reserves an entity id for an entity that only exists on the client
+     */
+    public static int nextEntityId() {
+        return EntityAccess.deathrun$currentId().incrementAndGet();
+    }
+
+    /**
+     * Reserves a run of consecutive entity ids, returning the first
+     */
+    public static int nextEntityIds(int count) {
+        return EntityAccess.deathrun$currentId().getAndAdd(count) + 1;
+    }
+
     public static void setBaseGameRules(GameActivity game) {
         game.deny(GameRuleType.PVP)
                 .deny(GameRuleType.USE_BLOCKS)
@@ -0,0 +1,11 @@
+package io.github.foundationgames.deathrun.util;
+
+import net.minecraft.server.network.ServerPlayerEntity;
+
+/**
+ * Implemented by entity trackers, to re-decide whether a player tracks the entity
+ * outside of the vanilla section change updates
+ */
+public interface TrackedStatusUpdater {
+    void deathrun$updateTrackedStatus(ServerPlayerEntity player);
+}